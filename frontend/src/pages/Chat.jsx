@@ -31,6 +31,7 @@ export default function Chat() {
     if (user && !wsInitialized.current) {
       loadFriends();
       loadGroups();
+      websocketService.setMembershipHandler(() => loadGroups());
       websocketService.connect(user.username, handleMessageReceived);
       wsInitialized.current = true;
 
@@ -82,7 +83,12 @@ export default function Chat() {
       }
     }
 
-    setMessages(prev => ({ ...prev, [chatKey]: [...(prev[chatKey] || []), message] }));
+    setMessages(prev => {
+      const existing = prev[chatKey] || [];
+      // A retried send is re-acked with the copy we may already have
+      if (message.id && existing.some(m => m.id === message.id)) return prev;
+      return { ...prev, [chatKey]: [...existing, message] };
+    });
 
     if (message.id && message.sender?.id !== user.id) {
       messageAPI.markAsDelivered(message.id).catch(() => { });
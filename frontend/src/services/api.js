@@ -50,19 +50,19 @@ export const friendAPI = {
 
 // Group APIs
 export const groupAPI = {
+  // Members are added in the same request as the group itself
   createGroup: (name, createdBy, memberIds) =>
-    api.post('/groups/create', { name, createdBy }).then(async (response) => {
-      // Add members to the group
-      const group = response.data;
-      for (const memberId of memberIds) {
-        await api.post('/groups/add-member', { groupId: group.id, userId: memberId });
-      }
-      return response;
-    }),
+    api.post('/groups/create', { name, createdBy, memberIds }),
 
   addMember: (groupId, userId) =>
     api.post('/groups/add-member', { groupId, userId }),
 
+  addMembers: (groupId, userIds) =>
+    api.post(`/groups/${groupId}/members/add`, { userIds }),
+
+  removeMembers: (groupId, userIds) =>
+    api.post(`/groups/${groupId}/members/remove`, { userIds }),
+
   getUserGroups: (userId) =>
     api.get(`/groups/list/${userId}`),
 
@@ -1,11 +1,23 @@
 import SockJS from 'sockjs-client';
 import { Client } from '@stomp/stompjs';
 
+// Lets the server recognise a frame re-sent after a reconnect as the same message
+const newClientMessageId = () =>
+  (typeof crypto !== 'undefined' && crypto.randomUUID)
+    ? crypto.randomUUID()
+    : `${Date.now().toString(36)}-${Math.random().toString(36).slice(2)}`;
+
 class WebSocketService {
   constructor() {
     this.client = null;
     this.connected = false;
     this.username = null;
+    // Prefer a raw WebSocket (permessage-deflate negotiated by the browser);
+    // fall back to SockJS if the upgrade never succeeds.
+    this.useNative = typeof WebSocket !== 'undefined';
+    this.nativeEstablished = false;
+    // Sends not yet echoed back, by clientMessageId; replayed unchanged after a reconnect
+    this.pending = new Map();
   }
 
   connect(username, onMessageReceived) {
@@ -16,10 +28,14 @@ class WebSocketService {
 
     this.username = username;
     const WS_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080';
-    const socket = new SockJS(`${WS_URL}/ws`);
 
     this.client = new Client({
-      webSocketFactory: () => socket,
+      webSocketFactory: () => {
+        if (this.useNative) {
+          return new WebSocket(`${WS_URL.replace(/^http/, 'ws')}/ws-native`);
+        }
+        return new SockJS(`${WS_URL}/ws`);
+      },
       connectHeaders: {
         login: username,
         passcode: username,
@@ -35,12 +51,15 @@ class WebSocketService {
     this.client.onConnect = () => {
       console.log('WebSocket Connected');
       this.connected = true;
+      if (this.useNative) this.nativeEstablished = true;
 
       // Subscribe to private messages
       this.client.subscribe(`/user/queue/messages`, (message) => {
         const receivedMessage = JSON.parse(message.body);
+        this.acknowledge(receivedMessage);
         console.log('Received private message:', receivedMessage);
-        onMessageReceived(receivedMessage, 'private');
+        // Re-acks of retried group sends also arrive on this queue
+        onMessageReceived(receivedMessage, receivedMessage.groupId ? 'group' : 'private');
       });
 
       // Subscribe to typing notifications
@@ -48,6 +67,15 @@ class WebSocketService {
         const event = JSON.parse(message.body);
         if (this.onTypingReceived) this.onTypingReceived(event);
       });
+
+      // Sends the server refused (rate limit); unacked frames are still pending, so retry them
+      this.client.subscribe(`/user/queue/errors`, (message) => {
+        const error = JSON.parse(message.body);
+        console.warn('Server rejected a send:', error);
+        if (error.type === 'RATE_LIMITED' || error.type === 'BUSY') this.scheduleReplay(error.retryAfterMs);
+      });
+
+      this.replayPending();
     };
 
     this.client.onStompError = (frame) => {
@@ -59,6 +87,10 @@ class WebSocketService {
     this.client.onWebSocketClose = () => {
       console.log('WebSocket connection closed');
       this.connected = false;
+      if (this.useNative && !this.nativeEstablished) {
+        console.log('Native WebSocket unavailable, falling back to SockJS');
+        this.useNative = false;
+      }
     };
 
     this.client.activate();
@@ -68,6 +100,12 @@ class WebSocketService {
     if (this.client && this.connected) {
       this.client.subscribe(`/topic/group/${groupId}`, (message) => {
         const receivedMessage = JSON.parse(message.body);
+        // Membership changes share the topic but are not chat messages
+        if (receivedMessage.type === 'MEMBERSHIP') {
+          if (this.onMembershipChanged) this.onMembershipChanged(receivedMessage);
+          return;
+        }
+        this.acknowledge(receivedMessage);
         onMessageReceived(receivedMessage, 'group');
       });
       // Group typing
@@ -78,6 +116,10 @@ class WebSocketService {
     }
   }
 
+  setMembershipHandler(handler) {
+    this.onMembershipChanged = handler;
+  }
+
   setTypingHandler(handler) {
     this.onTypingReceived = handler;
   }
@@ -97,39 +139,60 @@ class WebSocketService {
   }
 
   sendPrivateMessage(senderUsername, receiverUsername, content, replyTo) {
+    this.sendOnce('/app/private.send', {
+      sender: senderUsername,
+      receiver: receiverUsername,
+      content,
+      replyToId: replyTo?.id ? String(replyTo.id) : '',
+      replyPreview: replyTo?.content ? replyTo.content.substring(0, 80) : '',
+      replySenderName: replyTo?.senderName || '',
+    });
+  }
+
+  sendGroupMessage(senderUsername, groupId, content, replyTo) {
+    this.sendOnce('/app/group.send', {
+      sender: senderUsername,
+      groupId,
+      content,
+      replyToId: replyTo?.id ? String(replyTo.id) : '',
+      replyPreview: replyTo?.content ? replyTo.content.substring(0, 80) : '',
+      replySenderName: replyTo?.senderName || '',
+    });
+  }
+
+  // One clientMessageId per logical message: every retry re-sends the identical frame,
+  // so the server can recognise it and answer with the copy it already stored
+  sendOnce(destination, payload) {
+    const clientMessageId = newClientMessageId();
+    const frame = { destination, body: JSON.stringify({ ...payload, clientMessageId }) };
+    this.pending.set(clientMessageId, frame);
     if (this.client && this.connected) {
-      this.client.publish({
-        destination: '/app/private.send',
-        body: JSON.stringify({
-          sender: senderUsername,
-          receiver: receiverUsername,
-          content,
-          replyToId: replyTo?.id ? String(replyTo.id) : '',
-          replyPreview: replyTo?.content ? replyTo.content.substring(0, 80) : '',
-          replySenderName: replyTo?.senderName || '',
-        }),
-      });
+      this.client.publish(frame);
     } else {
-      console.error('Cannot send message: WebSocket not connected');
+      console.warn('WebSocket not connected: message queued until reconnect');
     }
+    return clientMessageId;
   }
 
-  sendGroupMessage(senderUsername, groupId, content, replyTo) {
-    if (this.client && this.connected) {
-      this.client.publish({
-        destination: '/app/group.send',
-        body: JSON.stringify({
-          sender: senderUsername,
-          groupId,
-          content,
-          replyToId: replyTo?.id ? String(replyTo.id) : '',
-          replyPreview: replyTo?.content ? replyTo.content.substring(0, 80) : '',
-          replySenderName: replyTo?.senderName || '',
-        }),
-      });
+  // Our own message came back (echo, group broadcast or re-ack of a retry)
+  acknowledge(receivedMessage) {
+    if (receivedMessage?.clientMessageId) {
+      this.pending.delete(receivedMessage.clientMessageId);
     }
   }
 
+  replayPending() {
+    this.pending.forEach((frame) => this.client.publish(frame));
+  }
+
+  scheduleReplay(delayMs) {
+    if (this.replayTimer) return;
+    this.replayTimer = setTimeout(() => {
+      this.replayTimer = null;
+      if (this.client && this.connected) this.replayPending();
+    }, delayMs || 1000);
+  }
+
   disconnect() {
     if (this.client) {
       this.client.deactivate();
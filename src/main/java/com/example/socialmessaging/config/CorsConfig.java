@@ -29,7 +29,7 @@ public class CorsConfig {
         
         config.setAllowedHeaders(Arrays.asList("*"));
         config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        config.setExposedHeaders(Arrays.asList("Authorization"));
+        config.setExposedHeaders(Arrays.asList("Authorization", "ETag", "Content-Range", "Accept-Ranges"));
         config.setMaxAge(3600L);
         
         source.registerCorsConfiguration("/**", config);
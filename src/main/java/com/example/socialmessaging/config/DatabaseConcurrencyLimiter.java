@@ -0,0 +1,149 @@
+package com.example.socialmessaging.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Only active with spring.threads.virtual.enabled=true on Java 21. Virtual threads
+ * remove the thread-pool cap on concurrent requests, so this caps the number of
+ * REST requests and database-bound STOMP sends in flight at the size of the Hikari
+ * pool; the rest park cheaply here instead of timing out inside getConnection().
+ * A chat send that still gets no permit is dropped and the sender is sent a BUSY
+ * error on /user/queue/errors, which the client answers by re-sending it later.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class DatabaseConcurrencyLimiter extends OncePerRequestFilter implements ExecutorChannelInterceptor {
+
+    // @MessageMapping destinations whose handlers touch the database; typing, heartbeats,
+    // SUBSCRIBE and broker traffic never take a permit
+    private static final Set<String> DATABASE_DESTINATIONS = Set.of("/app/private.send", "/app/group.send");
+
+    private final ThreadLocal<Boolean> acquiredForMessage = new ThreadLocal<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // The template's broker channel is configured by WebSocketConfig, which also registers this interceptor
+    @Autowired
+    private ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int permits;
+
+    @Value("${spring.datasource.hikari.connection-timeout:30000}")
+    private long acquireTimeoutMillis;
+
+    @Value("${chat.db.limiter.retry-after-ms:1000}")
+    private long retryAfterMillis;
+
+    private Semaphore semaphore;
+
+    @PostConstruct
+    void init() {
+        semaphore = new Semaphore(permits, true);
+        Gauge.builder("chat.db.limiter.waiting", semaphore, Semaphore::getQueueLength)
+                .description("Requests/messages waiting for a database permit")
+                .register(meterRegistry);
+        Gauge.builder("chat.db.limiter.available", semaphore, Semaphore::availablePermits)
+                .register(meterRegistry);
+    }
+
+    // ─── HTTP requests ─────────────────────────────────────────────────────────
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!tryAcquire()) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server busy, please retry");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return path.startsWith("/actuator") || path.startsWith("/ws");
+    }
+
+    // ─── STOMP messages (called on the inbound executor thread) ────────────────
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (!(handler instanceof SimpAnnotationMethodMessageHandler) || !isDatabaseBound(message)) {
+            return message;
+        }
+        if (!tryAcquire()) {
+            rejectBusy(message);
+            return null;
+        }
+        acquiredForMessage.set(Boolean.TRUE);
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (acquiredForMessage.get() != null) {
+            acquiredForMessage.remove();
+            semaphore.release();
+        }
+    }
+
+    private void rejectBusy(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        Principal user = accessor != null ? accessor.getUser() : null;
+        if (user == null) {
+            return;
+        }
+        messagingTemplate.getObject().convertAndSendToUser(user.getName(), "/queue/errors", Map.of(
+                "type", "BUSY",
+                "destination", accessor.getDestination(),
+                "retryAfterMs", retryAfterMillis));
+    }
+
+    private static boolean isDatabaseBound(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        return accessor != null && SimpMessageType.MESSAGE.equals(accessor.getMessageType())
+                && DATABASE_DESTINATIONS.contains(accessor.getDestination());
+    }
+
+    private boolean tryAcquire() {
+        try {
+            return semaphore.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.socialmessaging.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(FlywayConfig.class);
+
+    // spring.flyway.enabled is frozen into the AOT build, so the image's CDS training
+    // run (which has no database) switches migrations off with this property instead
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${chat.flyway.migrate:true}") boolean migrate) {
+        return flyway -> {
+            if (migrate) {
+                flyway.migrate();
+            } else {
+                log.info("Skipping Flyway migrations (chat.flyway.migrate=false)");
+            }
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.socialmessaging.config;
+
+import com.example.socialmessaging.metrics.EntityLoadInterceptor;
+import com.example.socialmessaging.metrics.SqlTimingSessionListener;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.sql.Connection;
+
+/**
+ * Reflection hints for the native image: Hibernate instantiates these from the
+ * class names in application.properties, which AOT processing cannot see. The
+ * statement-counting Connection proxy is a JDK proxy created at runtime.
+ */
+@Configuration
+@ImportRuntimeHints(NativeRuntimeHints.class)
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.reflection()
+                .registerType(SqlTimingSessionListener.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(EntityLoadInterceptor.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.proxies().registerJdkProxy(Connection.class);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.socialmessaging.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-user send budgets for the /app destinations. Each user gets one token
+ * bucket per destination, kept as a single "theoretical arrival time" (GCRA),
+ * so a check is one CAS with no locks. Frames over budget are dropped; for chat
+ * sends the user is told so on /user/queue/errors, with the wait before a retry.
+ */
+@Component
+public class RateLimitInterceptor implements ChannelInterceptor {
+
+    private static final String[] DESTINATIONS = {"/app/private.send", "/app/group.send", "/app/typing"};
+    private static final String[] BUDGET_NAMES = {"private", "group", "typing"};
+    private static final int TYPING_SLOT = 2;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // The template's broker channel is configured by WebSocketConfig, which also registers this interceptor
+    @Autowired
+    private ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+
+    @Value("${chat.ratelimit.private.per-second:5}")
+    private double privatePerSecond;
+
+    @Value("${chat.ratelimit.private.burst:20}")
+    private int privateBurst;
+
+    @Value("${chat.ratelimit.group.per-second:5}")
+    private double groupPerSecond;
+
+    @Value("${chat.ratelimit.group.burst:20}")
+    private int groupBurst;
+
+    @Value("${chat.ratelimit.typing.per-second:4}")
+    private double typingPerSecond;
+
+    @Value("${chat.ratelimit.typing.burst:8}")
+    private int typingBurst;
+
+    // principal -> theoretical arrival time (nanoTime) per destination slot
+    private final Map<String, AtomicLongArray> buckets = new ConcurrentHashMap<>();
+
+    private final long[] intervals = new long[DESTINATIONS.length];
+    private final long[] tolerances = new long[DESTINATIONS.length];
+    private final Counter[] throttled = new Counter[DESTINATIONS.length];
+
+    @PostConstruct
+    void init() {
+        configure(0, privatePerSecond, privateBurst);
+        configure(1, groupPerSecond, groupBurst);
+        configure(2, typingPerSecond, typingBurst);
+        for (int i = 0; i < DESTINATIONS.length; i++) {
+            throttled[i] = Counter.builder("chat.ratelimit.throttled")
+                    .description("STOMP frames dropped for exceeding the per-user send budget")
+                    .tag("budget", BUDGET_NAMES[i])
+                    .register(meterRegistry);
+        }
+        meterRegistry.gaugeMapSize("chat.ratelimit.tracked.users", Tags.empty(), buckets);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor =
+                MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SEND.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        int slot = slotFor(accessor.getDestination());
+        if (slot < 0) {
+            return message;
+        }
+
+        String key = accessor.getUser() != null ? accessor.getUser().getName() : accessor.getSessionId();
+        if (key == null) {
+            return message;
+        }
+
+        long now = System.nanoTime();
+        AtomicLongArray tats = buckets.computeIfAbsent(key, k -> fullBuckets(now));
+        if (tryAcquire(tats, slot, now)) {
+            return message;
+        }
+        throttled[slot].increment();
+        // Typing indicators are simply lost; a dropped chat message must be re-sent by the client
+        if (slot != TYPING_SLOT && accessor.getUser() != null) {
+            long retryAfterNanos = Math.max(0, tats.get(slot) - now - tolerances[slot]);
+            messagingTemplate.getObject().convertAndSendToUser(key, "/queue/errors", Map.of(
+                    "type", "RATE_LIMITED",
+                    "destination", accessor.getDestination(),
+                    "retryAfterMs", Math.max(1, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos) + 1)));
+        }
+        return null;
+    }
+
+    // Buckets whose arrival times are all in the past are full again, so
+    // dropping them loses nothing; this keeps memory proportional to active senders.
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(tats -> {
+            for (int i = 0; i < tats.length(); i++) {
+                if (tats.get(i) - now > 0) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private boolean tryAcquire(AtomicLongArray tats, int slot, long now) {
+        while (true) {
+            long tat = tats.get(slot);
+            long base = tat - now < 0 ? now : tat;
+            if (base - now > tolerances[slot]) {
+                return false;
+            }
+            if (tats.compareAndSet(slot, tat, base + intervals[slot])) {
+                return true;
+            }
+        }
+    }
+
+    private static AtomicLongArray fullBuckets(long now) {
+        AtomicLongArray tats = new AtomicLongArray(DESTINATIONS.length);
+        for (int i = 0; i < DESTINATIONS.length; i++) {
+            tats.set(i, now);
+        }
+        return tats;
+    }
+
+    private void configure(int slot, double perSecond, int burst) {
+        intervals[slot] = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        tolerances[slot] = intervals[slot] * Math.max(0, burst - 1);
+    }
+
+    private static int slotFor(String destination) {
+        if (destination == null) {
+            return -1;
+        }
+        for (int i = 0; i < DESTINATIONS.length; i++) {
+            if (DESTINATIONS[i].equals(destination)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
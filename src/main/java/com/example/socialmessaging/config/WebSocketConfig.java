@@ -1,12 +1,25 @@
 package com.example.socialmessaging.config;
 
+import com.example.socialmessaging.metrics.SqlBudgetChannelInterceptor;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -15,6 +28,28 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Autowired
     private UserChannelInterceptor userChannelInterceptor;
 
+    @Autowired
+    private WireFormatInterceptor wireFormatInterceptor;
+
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private SqlBudgetChannelInterceptor sqlBudgetChannelInterceptor;
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    // Present only in virtual-thread mode (spring.threads.virtual.enabled=true on Java 21)
+    @Autowired(required = false)
+    private DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    @Value("${chat.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${chat.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic", "/queue");
@@ -24,11 +59,73 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        // Raw WebSocket endpoint: one frame per message, and Tomcat negotiates
+        // permessage-deflate whenever the client offers it.
+        registry.addEndpoint("/ws-native").setAllowedOriginPatterns("*");
+
+        // SockJS fallback for clients/proxies that cannot upgrade
+        registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS()
+                .setStreamBytesLimit(512 * 1024)
+                .setHttpMessageCacheSize(1000)
+                .setDisconnectDelay(30 * 1000);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setMessageSizeLimit(messageSizeLimit);
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit);
+        registration.setSendTimeLimit(15 * 1000);
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(userChannelInterceptor);
+        registration.interceptors(userChannelInterceptor, rateLimitInterceptor, wireFormatInterceptor,
+                sqlBudgetChannelInterceptor);
+        if (databaseConcurrencyLimiter != null) {
+            registration.interceptors(databaseConcurrencyLimiter);
+            registration.taskExecutor(virtualThreadExecutor("stomp-inbound-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (databaseConcurrencyLimiter != null) {
+            registration.taskExecutor(virtualThreadExecutor("stomp-outbound-"));
+        }
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // CBOR only applies when the frame's content-type says so; everything else
+        // falls through to the default String/byte[]/JSON converters added after it.
+        MappingJackson2MessageConverter cborConverter =
+                new MappingJackson2MessageConverter(WireFormatInterceptor.APPLICATION_CBOR);
+        cborConverter.setObjectMapper(objectMapperBuilder.factory(new CBORFactory()).build());
+        cborConverter.setStrictContentTypeMatch(true);
+        messageConverters.add(cborConverter);
+        return true;
+    }
+
+    // Pool "threads" are virtual, so a large pool is cheap; the limiter above is
+    // what bounds concurrent database work.
+    private ThreadPoolTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory());
+        executor.setCorePoolSize(1000);
+        executor.setMaxPoolSize(1000);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setKeepAliveSeconds(60);
+        return executor;
+    }
+
+    // Container buffers sized to the STOMP message limit so compressed frames
+    // are inflated into a single buffer instead of being split into partial messages.
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(messageSizeLimit);
+        container.setMaxBinaryMessageBufferSize(messageSizeLimit);
+        container.setMaxSessionIdleTimeout(120 * 1000L);
+        return container;
     }
 }
@@ -0,0 +1,106 @@
+package com.example.socialmessaging.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks subscriptions to the binary (CBOR) variants of chat destinations.
+ * A client opts in by subscribing to the normal destination with a ".cbor"
+ * suffix, e.g. /user/queue/messages.cbor or /topic/group/42.cbor. Publishers
+ * only encode the CBOR copy while at least one such subscription is live.
+ */
+@Component
+public class WireFormatInterceptor implements ChannelInterceptor {
+
+    public static final String CBOR_SUFFIX = ".cbor";
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+
+    private static final String USER_PREFIX = "/user";
+
+    // destination key -> number of live CBOR subscriptions; only ever changed inside
+    // a single map operation, so a concurrent release cannot drop a fresh increment
+    private final Map<String, Integer> cborSubscriptions = new ConcurrentHashMap<>();
+
+    // session id -> (subscription id -> destination key)
+    private final Map<String, Map<String, String>> sessionSubscriptions = new ConcurrentHashMap<>();
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor =
+                MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        switch (accessor.getCommand()) {
+            case SUBSCRIBE -> {
+                String destination = accessor.getDestination();
+                if (sessionId != null && subscriptionId != null
+                        && destination != null && destination.endsWith(CBOR_SUFFIX)) {
+                    String key = destinationKey(accessor.getUser(), destination);
+                    sessionSubscriptions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                            .put(subscriptionId, key);
+                    cborSubscriptions.merge(key, 1, Integer::sum);
+                }
+            }
+            case UNSUBSCRIBE -> {
+                Map<String, String> subscriptions = sessionId != null ? sessionSubscriptions.get(sessionId) : null;
+                if (subscriptions != null && subscriptionId != null) {
+                    String key = subscriptions.remove(subscriptionId);
+                    if (key != null) {
+                        release(key);
+                    }
+                }
+            }
+            case DISCONNECT -> {
+                Map<String, String> subscriptions = sessionId != null ? sessionSubscriptions.remove(sessionId) : null;
+                if (subscriptions != null) {
+                    subscriptions.values().forEach(this::release);
+                }
+            }
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    public boolean hasTopicSubscribers(String destination) {
+        return cborSubscriptions.containsKey(destination + CBOR_SUFFIX);
+    }
+
+    public boolean hasUserSubscribers(String username, String destination) {
+        return cborSubscriptions.containsKey(username + ":" + destination + CBOR_SUFFIX);
+    }
+
+    public static MessageHeaders cborHeaders() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(APPLICATION_CBOR);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    private String destinationKey(Principal user, String destination) {
+        if (user != null && destination.startsWith(USER_PREFIX + "/")) {
+            return user.getName() + ":" + destination.substring(USER_PREFIX.length());
+        }
+        return destination;
+    }
+
+    private void release(String key) {
+        cborSubscriptions.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.socialmessaging.controller;
+
+import com.example.socialmessaging.model.Attachment;
+import com.example.socialmessaging.service.AttachmentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+@RestController
+@RequestMapping("/attachments")
+@CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
+public class AttachmentController {
+
+    // Content is addressed by its hash, so a URL never changes meaning
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ObjectProvider<AttachmentService> attachmentService;
+
+    // Raw request body (not multipart), streamed straight to disk
+    @PostMapping("/upload")
+    public ResponseEntity<?> upload(HttpServletRequest request,
+                                    @RequestHeader(value = "X-File-Name", required = false) String fileName) {
+        try {
+            Attachment attachment = attachmentService.getObject().store(request.getInputStream(), request.getContentType(), fileName);
+            return ResponseEntity.ok(attachment);
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public void download(@PathVariable String id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Attachment attachment;
+        try {
+            attachment = attachmentService.getObject().find(id);
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        if (AttachmentService.isInlineSafe(attachment.getContentType())) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
+            serveFile(attachmentService.getObject().contentPath(id), attachment.getContentType(), "\"" + id + "\"", request, response);
+        } else {
+            // Never let an uploader-chosen type render in our origin; the browser saves it instead
+            String name = attachment.getOriginalName() != null ? attachment.getOriginalName() : id;
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(name, StandardCharsets.UTF_8).build().toString());
+            serveFile(attachmentService.getObject().contentPath(id), MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                    "\"" + id + "\"", request, response);
+        }
+    }
+
+    @GetMapping("/{id}/thumbnail")
+    public void thumbnail(@PathVariable String id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Attachment attachment;
+        try {
+            attachment = attachmentService.getObject().find(id);
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        if (!attachment.isThumbnailReady()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Thumbnail not available");
+            return;
+        }
+        serveFile(attachmentService.getObject().thumbnailPath(id), "image/png", "\"" + id + "-thumb\"", request, response);
+    }
+
+    private void serveFile(Path file, String contentType, String etag,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader("Content-Security-Policy", "default-src 'none'; sandbox");
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", IMMUTABLE);
+        response.setHeader("Accept-Ranges", "bytes");
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = Files.size(file);
+        long start = 0;
+        long end = length - 1;
+
+        // Single ranges only; anything else gets the whole file
+        String range = request.getHeader("Range");
+        if (range != null && range.startsWith("bytes=") && !range.contains(",")) {
+            long[] bounds = parseRange(range.substring("bytes=".length()).trim(), length);
+            if (bounds == null) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = bounds[0];
+            end = bounds[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        // Tomcat copies the file to the socket itself once this request returns
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    // Returns {start, end} (inclusive) for "a-b", "a-" or "-suffix", or null if unsatisfiable
+    private static long[] parseRange(String spec, long length) {
+        int dash = spec.indexOf('-');
+        if (dash < 0 || length == 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            return start <= end && start < length ? new long[]{start, end} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.socialmessaging.controller;
 
+import com.example.socialmessaging.metrics.SqlBudget;
 import com.example.socialmessaging.model.FriendRequest;
 import com.example.socialmessaging.model.User;
 import com.example.socialmessaging.service.FriendRequestService;
+import com.example.socialmessaging.service.ResourceVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -18,6 +22,9 @@ public class FriendRequestController {
     @Autowired
     private FriendRequestService friendRequestService;
 
+    @Autowired
+    private ResourceVersionService resourceVersions;
+
     @PostMapping("/request/{senderId}/{receiverId}")
     public ResponseEntity<?> sendRequest(@PathVariable Long senderId, @PathVariable Long receiverId) {
         try {
@@ -39,12 +46,26 @@ public class FriendRequestController {
     }
 
     @GetMapping("/pending/{userId}")
+    @SqlBudget(2)
     public List<FriendRequest> getPendingRequests(@PathVariable Long userId) {
         return friendRequestService.getPendingRequests(userId);
     }
 
+    @GetMapping("/suggestions/{userId}")
+    @SqlBudget(1)
+    public List<Map<String, Object>> getSuggestions(@PathVariable Long userId,
+                                                    @RequestParam(defaultValue = "10") int limit) {
+        return friendRequestService.getSuggestions(userId, Math.min(limit, 50));
+    }
+
     @GetMapping("/list/{userId}")
-    public List<User> getFriends(@PathVariable Long userId) {
-        return friendRequestService.getFriends(userId);
+    @SqlBudget(3)
+    public ResponseEntity<List<User>> getFriends(@PathVariable Long userId, WebRequest request) {
+        String etag = resourceVersions.etag(ResourceVersionService.friendsKey(userId));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<User> friends = friendRequestService.getFriends(userId);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(friends);
     }
 }
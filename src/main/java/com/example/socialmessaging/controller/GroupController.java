@@ -1,11 +1,16 @@
 package com.example.socialmessaging.controller;
 
+import com.example.socialmessaging.metrics.SqlBudget;
 import com.example.socialmessaging.model.Group;
 import com.example.socialmessaging.service.GroupService;
+import com.example.socialmessaging.service.ResourceVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -17,12 +22,15 @@ public class GroupController {
     @Autowired
     private GroupService groupService;
 
+    @Autowired
+    private ResourceVersionService resourceVersions;
+
     @PostMapping("/create")
     public ResponseEntity<?> createGroup(@RequestBody Map<String, Object> payload) {
         try {
             String name = (String) payload.get("name");
             Long createdById = Long.valueOf(payload.get("createdBy").toString());
-            Group group = groupService.createGroup(name, createdById);
+            Group group = groupService.createGroup(name, createdById, userIds(payload.get("memberIds")));
             return ResponseEntity.ok(group);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -41,9 +49,36 @@ public class GroupController {
         }
     }
 
+    // Bulk membership: body {"userIds": [..]}, at most 1000 ids per call
+    @PostMapping("/{groupId}/members/add")
+    public ResponseEntity<?> addMembers(@PathVariable Long groupId, @RequestBody Map<String, Object> payload) {
+        try {
+            List<Long> added = groupService.addMembers(groupId, userIds(payload.get("userIds")));
+            return ResponseEntity.ok(Map.of("groupId", groupId, "added", added));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{groupId}/members/remove")
+    public ResponseEntity<?> removeMembers(@PathVariable Long groupId, @RequestBody Map<String, Object> payload) {
+        try {
+            List<Long> removed = groupService.removeMembers(groupId, userIds(payload.get("userIds")));
+            return ResponseEntity.ok(Map.of("groupId", groupId, "removed", removed));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/list/{userId}")
-    public List<Group> getUserGroups(@PathVariable Long userId) {
-        return groupService.getUserGroups(userId);
+    @SqlBudget(2)
+    public ResponseEntity<List<Group>> getUserGroups(@PathVariable Long userId, WebRequest request) {
+        String etag = resourceVersions.etag(ResourceVersionService.groupsKey(userId));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<Group> groups = groupService.getUserGroups(userId);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(groups);
     }
 
     @PutMapping("/update/{groupId}")
@@ -76,4 +111,18 @@ public class GroupController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    private static List<Long> userIds(Object value) {
+        if (value == null) {
+            return List.of();
+        }
+        if (!(value instanceof List<?> list)) {
+            throw new RuntimeException("userIds must be a list");
+        }
+        List<Long> ids = new ArrayList<>(list.size());
+        for (Object id : list) {
+            ids.add(Long.valueOf(id.toString()));
+        }
+        return ids;
+    }
 }
@@ -1,24 +1,48 @@
 package com.example.socialmessaging.controller;
 
+import com.example.socialmessaging.config.WireFormatInterceptor;
+import com.example.socialmessaging.metrics.SqlBudget;
 import com.example.socialmessaging.model.Message;
 import com.example.socialmessaging.model.User;
 import com.example.socialmessaging.repository.MessageRepository;
 import com.example.socialmessaging.repository.UserRepository;
+import com.example.socialmessaging.service.AttachmentService;
+import com.example.socialmessaging.service.ConversationExportService;
+import com.example.socialmessaging.service.ConversationSequenceService;
+import com.example.socialmessaging.service.GroupReceiptService;
+import com.example.socialmessaging.service.MessageDedupeService;
+import com.example.socialmessaging.service.OfflineNotificationService;
+import com.example.socialmessaging.service.ResourceVersionService;
+import com.example.socialmessaging.service.UserLookupService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
 public class MessageController {
 
+    private static final long MAX_RANGE = 500;
+    private static final int MAX_CLIENT_MESSAGE_ID_LENGTH = 64;
+    private static final int MAX_SEQ_ATTEMPTS = 3;
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
@@ -28,29 +52,131 @@ public class MessageController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserLookupService userLookup;
+
+    @Autowired
+    private WireFormatInterceptor wireFormatInterceptor;
+
+    @Autowired
+    private GroupReceiptService groupReceiptService;
+
+    @Autowired
+    private ResourceVersionService resourceVersions;
+
+    // Export and attachments are off the hot path: created on first use, not at startup.
+    // ObjectProvider rather than @Lazy: a lazy-resolution proxy of a class that is already
+    // proxied for @Transactional collides with the AOT-generated CGLIB proxy class.
+    @Autowired
+    private ObjectProvider<ConversationExportService> conversationExportService;
+
+    @Autowired
+    private ConversationSequenceService conversationSequences;
+
+    @Autowired
+    private OfflineNotificationService offlineNotificationService;
+
+    @Autowired
+    private ObjectProvider<AttachmentService> attachmentService;
+
+    @Autowired
+    private MessageDedupeService messageDedupe;
+
     // ─── REST: Fetch private chat history ─────────────────────────────────────
     @GetMapping("/messages/history")
+    @SqlBudget(1)
     public ResponseEntity<List<Message>> getMessageHistory(
             @RequestParam Long userId,
-            @RequestParam Long friendId) {
+            @RequestParam Long friendId,
+            WebRequest request) {
 
-        User user   = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        User friend = userRepository.findById(friendId)
-                .orElseThrow(() -> new RuntimeException("Friend not found"));
+        String etag = resourceVersions.etag(ResourceVersionService.privateChatKey(userId, friendId));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
 
-        List<Message> messages = messageRepository
-                .findBySenderAndReceiverOrReceiverAndSenderOrderByTimestampAsc(
-                        user, friend, user, friend);
+        List<Message> messages = messageRepository.findByConversationKeyOrderBySeqAsc(
+                ConversationSequenceService.privateKey(userId, friendId));
 
-        return ResponseEntity.ok(messages);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(messages);
+    }
+
+    // ─── REST: Fetch a seq range of a private chat (gap fill) ──────────────────
+    @GetMapping("/messages/history/range")
+    @SqlBudget(1)
+    public ResponseEntity<?> getMessageRange(@RequestParam Long userId,
+                                             @RequestParam Long friendId,
+                                             @RequestParam Long fromSeq,
+                                             @RequestParam Long toSeq) {
+        return seqRange(ConversationSequenceService.privateKey(userId, friendId), fromSeq, toSeq);
     }
 
     // ─── REST: Fetch group message history ────────────────────────────────────
     @GetMapping("/messages/group/{groupId}")
-    public ResponseEntity<List<Message>> getGroupHistory(@PathVariable Long groupId) {
-        List<Message> messages = messageRepository.findByGroupIdOrderByTimestampAsc(groupId);
-        return ResponseEntity.ok(messages);
+    @SqlBudget(1)
+    public ResponseEntity<List<Message>> getGroupHistory(@PathVariable Long groupId, WebRequest request) {
+        String etag = resourceVersions.etag(ResourceVersionService.groupChatKey(groupId));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        List<Message> messages = messageRepository.findByConversationKeyOrderBySeqAsc(
+                ConversationSequenceService.groupKey(groupId));
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(messages);
+    }
+
+    // ─── REST: Fetch a seq range of a group chat (gap fill) ────────────────────
+    @GetMapping("/messages/group/{groupId}/range")
+    @SqlBudget(1)
+    public ResponseEntity<?> getGroupRange(@PathVariable Long groupId,
+                                           @RequestParam Long fromSeq,
+                                           @RequestParam Long toSeq) {
+        return seqRange(ConversationSequenceService.groupKey(groupId), fromSeq, toSeq);
+    }
+
+    // ─── REST: Stream a private chat as NDJSON ────────────────────────────────
+    @GetMapping("/messages/export/private")
+    public void exportPrivateChat(@RequestParam Long userId,
+                                  @RequestParam Long friendId,
+                                  @RequestParam(defaultValue = "false") boolean gzip,
+                                  HttpServletResponse response) throws IOException {
+        try (OutputStream out = startExport(response, "chat-" + userId + "-" + friendId, gzip)) {
+            conversationExportService.getObject().exportPrivateChat(userId, friendId, out);
+        }
+    }
+
+    // ─── REST: Stream a group chat as NDJSON ──────────────────────────────────
+    @GetMapping("/messages/export/group/{groupId}")
+    public void exportGroupChat(@PathVariable Long groupId,
+                                @RequestParam(defaultValue = "false") boolean gzip,
+                                HttpServletResponse response) throws IOException {
+        try (OutputStream out = startExport(response, "group-" + groupId, gzip)) {
+            conversationExportService.getObject().exportGroupChat(groupId, out);
+        }
+    }
+
+    // ─── REST: Advance a member's read watermark in a group ───────────────────
+    @PutMapping("/messages/group/{groupId}/read")
+    public ResponseEntity<?> markGroupRead(@PathVariable Long groupId,
+                                           @RequestParam Long userId,
+                                           @RequestParam Long messageId) {
+        try {
+            groupReceiptService.markRead(groupId, userId, messageId);
+            return ResponseEntity.ok("Watermark updated");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // ─── REST: "Read by N of M" for a group message ───────────────────────────
+    @GetMapping("/messages/group/{groupId}/receipts/{messageId}")
+    @SqlBudget(2)
+    public ResponseEntity<?> getGroupReadReceipt(@PathVariable Long groupId, @PathVariable Long messageId) {
+        try {
+            return ResponseEntity.ok(groupReceiptService.getReadReceipt(groupId, messageId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     // ─── REST: Edit a message ──────────────────────────────────────────────────
@@ -63,6 +189,7 @@ public class MessageController {
             message.setEdited(true);
             message.setEditedAt(LocalDateTime.now());
             messageRepository.save(message);
+            bumpConversation(message);
             return ResponseEntity.ok(message);
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error editing message: " + e.getMessage());
@@ -76,6 +203,7 @@ public class MessageController {
             Message message = messageRepository.findById(messageId)
                     .orElseThrow(() -> new RuntimeException("Message not found"));
             messageRepository.delete(message);
+            bumpConversation(message);
             return ResponseEntity.ok(Map.of("deleted", messageId));
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error deleting message: " + e.getMessage());
@@ -91,11 +219,11 @@ public class MessageController {
             User friend = userRepository.findById(friendId)
                     .orElseThrow(() -> new RuntimeException("Friend not found"));
 
-            List<Message> messages = messageRepository
-                    .findBySenderAndReceiverOrReceiverAndSenderOrderByTimestampAsc(
-                            user, friend, user, friend);
+            List<Message> messages = messageRepository.findByConversationKeyOrderBySeqAsc(
+                    ConversationSequenceService.privateKey(user.getId(), friend.getId()));
             
             messageRepository.deleteAll(messages);
+            resourceVersions.bump(ResourceVersionService.privateChatKey(userId, friendId));
             return ResponseEntity.ok("Chat deleted successfully");
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error deleting chat: " + e.getMessage());
@@ -112,6 +240,7 @@ public class MessageController {
             if (message.getDeliveredAt() == null) {
                 message.setDeliveredAt(java.time.LocalDateTime.now());
                 messageRepository.save(message);
+                bumpConversation(message);
             }
             
             return ResponseEntity.ok(message);
@@ -133,6 +262,7 @@ public class MessageController {
                     message.setDeliveredAt(java.time.LocalDateTime.now());
                 }
                 messageRepository.save(message);
+                bumpConversation(message);
             }
             
             return ResponseEntity.ok(message);
@@ -164,6 +294,7 @@ public class MessageController {
             }
             
             messageRepository.saveAll(messages);
+            resourceVersions.bump(ResourceVersionService.privateChatKey(userId, senderId));
             return ResponseEntity.ok("Messages marked as read");
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error updating messages: " + e.getMessage());
@@ -185,15 +316,24 @@ public class MessageController {
             System.out.println("Receiver: " + receiverUsername);
             System.out.println("Content: " + content);
 
-            User sender   = userRepository.findByUsername(senderUsername)
+            User sender   = userLookup.findByUsername(senderUsername)
                     .orElseThrow(() -> new RuntimeException("Sender not found: " + senderUsername));
-            User receiver = userRepository.findByUsername(receiverUsername)
+            User receiver = userLookup.findByUsername(receiverUsername)
                     .orElseThrow(() -> new RuntimeException("Receiver not found: " + receiverUsername));
 
             System.out.println("Found sender ID: " + sender.getId());
             System.out.println("Found receiver ID: " + receiver.getId());
 
             Message message = new Message(sender, receiver, content);
+            // Checked before a sequence number is taken, so a bad id leaves no gap
+            String attachmentId = payload.get("attachmentId");
+            if (attachmentId != null && !attachmentId.isEmpty()) {
+                if (!attachmentService.getObject().exists(attachmentId)) {
+                    throw new RuntimeException("Attachment not found: " + attachmentId);
+                }
+                message.setAttachmentId(attachmentId);
+            }
+            message.setConversationKey(ConversationSequenceService.privateKey(sender.getId(), receiver.getId()));
             // Save reply metadata if present
             String replyToIdStr = payload.get("replyToId");
             if (replyToIdStr != null && !replyToIdStr.isEmpty()) {
@@ -201,15 +341,20 @@ public class MessageController {
                 message.setReplyPreview(payload.get("replyPreview"));
                 message.setReplySenderName(payload.get("replySenderName"));
             }
-            messageRepository.save(message);
+            if (persistOnce(message, payload.get("clientMessageId")) == null) {
+                return; // Retry of a send that was already stored
+            }
+            resourceVersions.bump(ResourceVersionService.privateChatKey(sender.getId(), receiver.getId()));
 
             System.out.println("Message saved with ID: " + message.getId());
             System.out.println("Sending to receiver: " + receiverUsername);
             
             // Deliver to receiver
-            messagingTemplate.convertAndSendToUser(receiverUsername, "/queue/messages", message);
+            sendToUser(receiverUsername, "/queue/messages", message);
             // Echo back to sender so they see their own message immediately
-            messagingTemplate.convertAndSendToUser(senderUsername, "/queue/messages", message);
+            sendToUser(senderUsername, "/queue/messages", message);
+            // Nobody is subscribed to receive the frame above: queue a digest instead
+            offlineNotificationService.notifyIfOffline(receiver, sender, message);
             
             System.out.println("=== MESSAGE SENT SUCCESSFULLY ===");
         } catch (Exception e) {
@@ -226,13 +371,21 @@ public class MessageController {
         Long   groupId        = Long.valueOf(payload.get("groupId").toString());
         String content        = (String) payload.get("content");
 
-        User sender = userRepository.findByUsername(senderUsername)
+        User sender = userLookup.findByUsername(senderUsername)
                 .orElseThrow(() -> new RuntimeException("Sender not found"));
 
         Message message = new Message();
         message.setSender(sender);
         message.setGroupId(groupId);
         message.setContent(content);
+        Object attachmentId = payload.get("attachmentId");
+        if (attachmentId != null && !attachmentId.toString().isEmpty()) {
+            if (!attachmentService.getObject().exists(attachmentId.toString())) {
+                throw new RuntimeException("Attachment not found: " + attachmentId);
+            }
+            message.setAttachmentId(attachmentId.toString());
+        }
+        message.setConversationKey(ConversationSequenceService.groupKey(groupId));
         // Save reply metadata if present
         String replyToIdStr = payload.containsKey("replyToId") ? payload.get("replyToId").toString() : "";
         if (!replyToIdStr.isEmpty()) {
@@ -240,9 +393,15 @@ public class MessageController {
             message.setReplyPreview(payload.containsKey("replyPreview") ? payload.get("replyPreview").toString() : "");
             message.setReplySenderName(payload.containsKey("replySenderName") ? payload.get("replySenderName").toString() : "");
         }
-        messageRepository.save(message);
+        Object clientMessageId = payload.get("clientMessageId");
+        if (persistOnce(message, clientMessageId != null ? clientMessageId.toString() : null) == null) {
+            return; // Retry of a send that was already stored
+        }
+        resourceVersions.bump(ResourceVersionService.groupChatKey(groupId));
+        // The sender has implicitly read everything up to their own message
+        groupReceiptService.markRead(sender.getId(), message);
 
-        messagingTemplate.convertAndSend("/topic/group/" + groupId, message);
+        sendToTopic("/topic/group/" + groupId, message);
     }
     // ─── WebSocket: Typing indicator ──────────────────────────────────────────
     @MessageMapping("/typing")
@@ -263,4 +422,127 @@ public class MessageController {
             messagingTemplate.convertAndSendToUser(receiverUsername, "/queue/typing", typingEvent);
         }
     }
+
+    private ResponseEntity<?> seqRange(String conversationKey, Long fromSeq, Long toSeq) {
+        if (fromSeq > toSeq || toSeq - fromSeq >= MAX_RANGE) {
+            return ResponseEntity.badRequest().body("Range must be ascending and at most " + MAX_RANGE + " messages");
+        }
+        return ResponseEntity.ok(messageRepository
+                .findByConversationKeyAndSeqBetweenOrderBySeqAsc(conversationKey, fromSeq, toSeq));
+    }
+
+    private OutputStream startExport(HttpServletResponse response, String fileName, boolean gzip) throws IOException {
+        response.setContentType(gzip ? "application/gzip" : "application/x-ndjson");
+        response.setHeader("Content-Disposition",
+                "attachment; filename=\"" + fileName + (gzip ? ".ndjson.gz" : ".ndjson") + "\"");
+        OutputStream out = response.getOutputStream();
+        return gzip ? new GZIPOutputStream(out, 8192) : out;
+    }
+
+    private void bumpConversation(Message message) {
+        if (message.getGroupId() != null) {
+            resourceVersions.bump(ResourceVersionService.groupChatKey(message.getGroupId()));
+        } else if (message.getReceiver() != null) {
+            resourceVersions.bump(ResourceVersionService.privateChatKey(
+                    message.getSender().getId(), message.getReceiver().getId()));
+        }
+    }
+
+    // ─── Persistence: exactly-once saves with a dense conversation seq ────────
+    /**
+     * Assigns the conversation seq and saves the message, unless the sender already
+     * sent one with the same clientMessageId: then the stored copy is re-acked to the
+     * sender only and null is returned so the caller skips fanout.
+     */
+    private Message persistOnce(Message message, String clientMessageId) {
+        if (clientMessageId == null || clientMessageId.isEmpty()) {
+            return saveWithSeq(message);
+        }
+        if (clientMessageId.length() > MAX_CLIENT_MESSAGE_ID_LENGTH) {
+            throw new RuntimeException("clientMessageId longer than " + MAX_CLIENT_MESSAGE_ID_LENGTH + " characters");
+        }
+
+        User sender = message.getSender();
+        Long existingId = messageDedupe.claim(sender.getId(), clientMessageId);
+        if (existingId != null) {
+            if (existingId == MessageDedupeService.IN_FLIGHT) {
+                // First save still running after the wait: the client keeps the frame unacked and
+                // replays it, so refusing this copy cannot lose the message
+                throw new RuntimeException("Send " + clientMessageId + " is still being stored, retry later");
+            }
+            messageRepository.findById(existingId)
+                    .ifPresent(existing -> sendToUser(sender.getUsername(), "/queue/messages", existing));
+            return null;
+        }
+
+        message.setClientMessageId(clientMessageId);
+        try {
+            Message saved = saveWithSeq(message);
+            messageDedupe.complete(sender.getId(), clientMessageId, saved.getId());
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // Outside the window (other instance, restart): the unique index caught the retry
+            Optional<Message> existing = messageRepository.findBySenderIdAndClientMessageId(sender.getId(), clientMessageId);
+            if (existing.isEmpty()) {
+                messageDedupe.release(sender.getId(), clientMessageId);
+                throw e;
+            }
+            messageDedupe.complete(sender.getId(), clientMessageId, existing.get().getId());
+            sendToUser(sender.getUsername(), "/queue/messages", existing.get());
+            return null;
+        } catch (RuntimeException e) {
+            messageDedupe.release(sender.getId(), clientMessageId);
+            throw e;
+        }
+    }
+
+    // The counter may be stale when another instance numbered this conversation since it
+    // was seeded; the unique seq index rejects the save, so re-seed and try again
+    private Message saveWithSeq(Message message) {
+        String key = message.getConversationKey();
+        for (int attempt = 1; ; attempt++) {
+            long seq = conversationSequences.next(key);
+            message.setSeq(seq);
+            try {
+                return messageRepository.save(message);
+            } catch (DataIntegrityViolationException e) {
+                message.setId(null);
+                if (!isSeqConflict(e) || attempt == MAX_SEQ_ATTEMPTS) {
+                    conversationSequences.giveBack(key, seq);
+                    throw e;
+                }
+                conversationSequences.reseed(key);
+            } catch (RuntimeException e) {
+                message.setId(null);
+                conversationSequences.giveBack(key, seq);
+                throw e;
+            }
+        }
+    }
+
+    private static boolean isSeqConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return ConversationSequenceService.SEQ_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return e.getMessage() != null && e.getMessage().contains(ConversationSequenceService.SEQ_CONSTRAINT);
+    }
+
+    // ─── Delivery helpers: JSON always, CBOR copy only when someone subscribed ─
+    private void sendToUser(String username, String destination, Object payload) {
+        messagingTemplate.convertAndSendToUser(username, destination, payload);
+        if (wireFormatInterceptor.hasUserSubscribers(username, destination)) {
+            messagingTemplate.convertAndSendToUser(username, destination + WireFormatInterceptor.CBOR_SUFFIX,
+                    payload, WireFormatInterceptor.cborHeaders());
+        }
+    }
+
+    private void sendToTopic(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+        if (wireFormatInterceptor.hasTopicSubscribers(destination)) {
+            messagingTemplate.convertAndSend(destination + WireFormatInterceptor.CBOR_SUFFIX,
+                    payload, WireFormatInterceptor.cborHeaders());
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.socialmessaging.controller;
 
 import com.example.socialmessaging.model.User;
+import com.example.socialmessaging.service.CredentialsBusyException;
 import com.example.socialmessaging.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -28,6 +29,8 @@ public class UserController {
             System.out.println("Registration successful for user ID: " + user.getId());
             System.out.println("=== REGISTRATION SUCCESS ===");
             return ResponseEntity.ok(user);
+        } catch (CredentialsBusyException e) {
+            return ResponseEntity.status(503).header("Retry-After", "1").body(e.getMessage());
         } catch (RuntimeException e) {
             System.err.println("=== REGISTRATION FAILED ===");
             System.err.println("Error: " + e.getMessage());
@@ -52,6 +55,8 @@ public class UserController {
             System.out.println("Login successful for user ID: " + user.getId());
             System.out.println("=== LOGIN SUCCESS ===");
             return ResponseEntity.ok(user);
+        } catch (CredentialsBusyException e) {
+            return ResponseEntity.status(503).header("Retry-After", "1").body(e.getMessage());
         } catch (RuntimeException e) {
             System.err.println("=== LOGIN FAILED ===");
             System.err.println("Error: " + e.getMessage());
@@ -81,6 +86,8 @@ public class UserController {
             
             System.out.println("User updated successfully");
             return ResponseEntity.ok(user);
+        } catch (CredentialsBusyException e) {
+            return ResponseEntity.status(503).header("Retry-After", "1").body(e.getMessage());
         } catch (RuntimeException e) {
             System.err.println("Update failed: " + e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -0,0 +1,17 @@
+package com.example.socialmessaging.metrics;
+
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Counts hydrated entities. Registered as the session-factory-scoped interceptor
+ * (hibernate.session_factory.interceptor), so it must stay stateless.
+ */
+public class EntityLoadInterceptor implements Interceptor {
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        SqlStats.entityLoaded();
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.socialmessaging.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of SQL statements a handler may issue per request, counted at the
+ * DataSource so Hibernate and JdbcTemplate statements both count. Exceeding it
+ * is logged and counted; with chat.sql-budget.enforce=true (e.g. in tests) the
+ * request fails instead, so N+1 regressions break the build.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+
+    int value();
+}
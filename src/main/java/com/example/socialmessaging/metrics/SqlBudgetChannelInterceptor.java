@@ -0,0 +1,53 @@
+package com.example.socialmessaging.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+// Per-message counterpart of SqlBudgetFilter for @MessageMapping handlers. Only SENDs to
+// /app/* are measured: SUBSCRIBE and friends carry per-group topic destinations, which
+// would mint new meters for every group id.
+@Component
+public class SqlBudgetChannelInterceptor implements ExecutorChannelInterceptor {
+
+    private static final String APP_PREFIX = "/app/";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (isAppSend(message, handler)) {
+            SqlStats.begin();
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (!isAppSend(message, handler)) {
+            return;
+        }
+        SqlStats stats = SqlStats.end();
+        if (stats != null) {
+            SqlBudgetFilter.record(meterRegistry, "stomp",
+                    SimpMessageHeaderAccessor.getDestination(message.getHeaders()), stats);
+        }
+    }
+
+    private static boolean isAppSend(Message<?> message, MessageHandler handler) {
+        if (!(handler instanceof SimpAnnotationMethodMessageHandler)) {
+            return false;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        return SimpMessageType.MESSAGE.equals(SimpMessageHeaderAccessor.getMessageType(message.getHeaders()))
+                && destination != null && destination.startsWith(APP_PREFIX);
+    }
+}
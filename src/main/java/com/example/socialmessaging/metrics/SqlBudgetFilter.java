@@ -0,0 +1,98 @@
+package com.example.socialmessaging.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Checks @SqlBudget once the whole request, including JSON serialization (and any
+// lazy loads it triggers), has run. With enforcement on, the response is buffered so
+// a request over budget can still be failed instead of having already been sent.
+@Component
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.sql-budget.enforce:false}")
+    private boolean enforce;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper buffered = enforce ? new ContentCachingResponseWrapper(response) : null;
+        SqlStats stats;
+        SqlStats.begin();
+        try {
+            chain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            stats = SqlStats.end();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (stats != null && pattern != null) {
+                record(meterRegistry, "http", pattern.toString(), stats);
+            }
+        }
+        checkBudget(request, stats);
+        if (buffered != null) {
+            buffered.copyBodyToResponse();
+        }
+    }
+
+    private void checkBudget(HttpServletRequest request, SqlStats stats) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (stats == null || !(handler instanceof HandlerMethod handlerMethod)) {
+            return;
+        }
+        SqlBudget budget = handlerMethod.getMethodAnnotation(SqlBudget.class);
+        if (budget == null || stats.getStatements() <= budget.value()) {
+            return;
+        }
+        String name = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        meterRegistry.counter("chat.sql.budget.exceeded", "handler", name).increment();
+        String detail = name + " issued " + stats.getStatements() + " SQL statements, budget is " + budget.value();
+        if (enforce) {
+            throw new IllegalStateException("SQL budget exceeded: " + detail);
+        }
+        log.warn("SQL budget exceeded: {}", detail);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    static void record(MeterRegistry registry, String transport, String endpoint, SqlStats stats) {
+        DistributionSummary.builder("chat.sql.statements")
+                .description("SQL statements per request/message")
+                .tags("transport", transport, "endpoint", endpoint)
+                .register(registry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("chat.sql.entities.loaded")
+                .description("Entities hydrated per request/message")
+                .tags("transport", transport, "endpoint", endpoint)
+                .register(registry)
+                .record(stats.getEntitiesLoaded());
+        Timer.builder("chat.sql.jdbc.time")
+                .description("Time spent executing JDBC statements per request/message")
+                .tags("transport", transport, "endpoint", endpoint)
+                .register(registry)
+                .record(stats.getJdbcNanos(), TimeUnit.NANOSECONDS);
+    }
+}
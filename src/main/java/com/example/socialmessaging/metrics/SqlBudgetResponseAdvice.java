@@ -0,0 +1,41 @@
+package com.example.socialmessaging.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.concurrent.TimeUnit;
+
+// Runs after the handler and before the body is written, the last point where headers
+// can still be added. The counts exclude serialization; the budget itself is checked
+// afterwards in SqlBudgetFilter.
+@ControllerAdvice
+public class SqlBudgetResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Value("${chat.sql-budget.headers:false}")
+    private boolean headersEnabled;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStats stats = SqlStats.current();
+        if (stats != null && headersEnabled) {
+            response.getHeaders().set("X-SQL-Statements", String.valueOf(stats.getStatements()));
+            response.getHeaders().set("X-SQL-Entities", String.valueOf(stats.getEntitiesLoaded()));
+            response.getHeaders().set("X-SQL-Time-Ms",
+                    String.valueOf(TimeUnit.NANOSECONDS.toMillis(stats.getJdbcNanos())));
+        }
+        return body;
+    }
+}
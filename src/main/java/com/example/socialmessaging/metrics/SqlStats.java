@@ -0,0 +1,80 @@
+package com.example.socialmessaging.metrics;
+
+/**
+ * SQL work done by the current HTTP request or STOMP message. Bound to the
+ * handling thread by {@link SqlBudgetFilter} / {@link SqlBudgetChannelInterceptor}
+ * and filled in by StatementCountingDataSource (statements, including JdbcTemplate)
+ * and the Hibernate hooks (JDBC time, batches, entities).
+ */
+public final class SqlStats {
+
+    private static final ThreadLocal<SqlStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private int batches;
+    private int entitiesLoaded;
+    private long jdbcNanos;
+
+    private SqlStats() {
+    }
+
+    public static SqlStats begin() {
+        SqlStats stats = new SqlStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static SqlStats current() {
+        return CURRENT.get();
+    }
+
+    public static SqlStats end() {
+        SqlStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats;
+    }
+
+    static void statementPrepared() {
+        SqlStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.statements++;
+        }
+    }
+
+    static void batchExecuted() {
+        SqlStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.batches++;
+        }
+    }
+
+    static void entityLoaded() {
+        SqlStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.entitiesLoaded++;
+        }
+    }
+
+    static void jdbcTime(long nanos) {
+        SqlStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.jdbcNanos += nanos;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public int getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    public long getJdbcNanos() {
+        return jdbcNanos;
+    }
+}
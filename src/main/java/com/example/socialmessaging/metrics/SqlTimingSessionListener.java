@@ -0,0 +1,36 @@
+package com.example.socialmessaging.metrics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Registered through hibernate.session.events.auto; Hibernate creates one
+ * instance per session, and a session is only used by one thread at a time.
+ * Statements are counted at the DataSource (StatementCountingDataSource), which
+ * also sees JdbcTemplate; JDBC time and batches here cover Hibernate only.
+ */
+public class SqlTimingSessionListener extends BaseSessionEventListener {
+
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        SqlStats.jdbcTime(System.nanoTime() - statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        SqlStats.batchExecuted();
+        SqlStats.jdbcTime(System.nanoTime() - batchStart);
+    }
+}
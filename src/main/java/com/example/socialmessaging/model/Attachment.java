@@ -0,0 +1,41 @@
+package com.example.socialmessaging.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "attachments")
+@Data
+@NoArgsConstructor
+public class Attachment {
+
+    @Id
+    @Column(length = 64)
+    private String id;                  // Hex SHA-256 of the content
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "original_name")
+    private String originalName;
+
+    @Column(name = "thumbnail_ready", nullable = false)
+    private boolean thumbnailReady = false;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    public Attachment(String id, String contentType, long sizeBytes, String originalName) {
+        this.id = id;
+        this.contentType = contentType;
+        this.sizeBytes = sizeBytes;
+        this.originalName = originalName;
+    }
+}
@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 public class FriendRequest {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "friend_request_seq")
+    @SequenceGenerator(name = "friend_request_seq", sequenceName = "friend_requests_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -3,6 +3,8 @@ package com.example.socialmessaging.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -11,12 +13,15 @@ import java.util.Set;
 
 @Entity
 @Table(name = "chat_groups")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "groups")
 @Data
 @NoArgsConstructor
 public class Group {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "group_seq")
+    @SequenceGenerator(name = "group_seq", sequenceName = "chat_groups_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -26,7 +31,9 @@ public class Group {
     @JoinColumn(name = "created_by", nullable = false)
     private User createdBy;
 
+    // Cached as member ids; native SQL on group_members must evict it (see GroupService)
     @ManyToMany(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "group-members")
     @JoinTable(
         name = "group_members",
         joinColumns = @JoinColumn(name = "group_id"),
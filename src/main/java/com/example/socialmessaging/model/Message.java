@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 public class Message {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_seq")
+    @SequenceGenerator(name = "message_seq", sequenceName = "messages_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -32,6 +33,18 @@ public class Message {
     @Column(nullable = false)
     private String content;
 
+    @Column(name = "conversation_key", length = 64)
+    private String conversationKey;     // "p:<minUserId>:<maxUserId>" or "g:<groupId>"
+
+    @Column(name = "seq")
+    private Long seq;                   // Dense per-conversation sequence number
+
+    @Column(name = "attachment_id", length = 64)
+    private String attachmentId;        // Content hash of an uploaded attachment, if any
+
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;     // Sender-chosen id used to absorb retried sends
+
     @CreationTimestamp
     private LocalDateTime timestamp;
 
@@ -0,0 +1,7 @@
+package com.example.socialmessaging.repository;
+
+import com.example.socialmessaging.model.Attachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface AttachmentRepository extends JpaRepository<Attachment, String> {
+}
@@ -3,12 +3,17 @@ package com.example.socialmessaging.repository;
 import com.example.socialmessaging.model.FriendRequest;
 import com.example.socialmessaging.model.FriendRequestStatus;
 import com.example.socialmessaging.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 import java.util.Optional;
 
 public interface FriendRequestRepository extends JpaRepository<FriendRequest, Long> {
+    @EntityGraph(attributePaths = {"sender", "receiver"})
     List<FriendRequest> findByReceiverAndStatus(User receiver, FriendRequestStatus status);
+
+    @EntityGraph(attributePaths = {"sender", "receiver"})
     List<FriendRequest> findBySenderAndStatus(User sender, FriendRequestStatus status);
+
     Optional<FriendRequest> findBySenderAndReceiver(User sender, User receiver);
 }
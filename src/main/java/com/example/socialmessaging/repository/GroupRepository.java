@@ -2,9 +2,11 @@ package com.example.socialmessaging.repository;
 
 import com.example.socialmessaging.model.Group;
 import com.example.socialmessaging.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 
 public interface GroupRepository extends JpaRepository<Group, Long> {
+    @EntityGraph(attributePaths = {"members", "createdBy"})
     List<Group> findByMembersContaining(User user);
 }
@@ -2,11 +2,39 @@ package com.example.socialmessaging.repository;
 
 import com.example.socialmessaging.model.Message;
 import com.example.socialmessaging.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
-    List<Message> findBySenderAndReceiverOrReceiverAndSenderOrderByTimestampAsc(User sender, User receiver, User receiver2, User sender2);
-    List<Message> findByGroupIdOrderByTimestampAsc(Long groupId);
     List<Message> findBySenderAndReceiverOrderByTimestampAsc(User sender, User receiver);
+
+    // sender/receiver are fetched in the same query instead of one select per distinct user
+    @EntityGraph(attributePaths = {"sender", "receiver"})
+    List<Message> findByConversationKeyOrderBySeqAsc(String conversationKey);
+
+    @EntityGraph(attributePaths = {"sender", "receiver"})
+    List<Message> findByConversationKeyAndSeqBetweenOrderBySeqAsc(String conversationKey, Long fromSeq, Long toSeq);
+
+    @EntityGraph(attributePaths = {"sender", "receiver"})
+    Optional<Message> findBySenderIdAndClientMessageId(Long senderId, String clientMessageId);
+
+    @Query("select max(m.seq) from Message m where m.conversationKey = :conversationKey")
+    Long findMaxSeq(@Param("conversationKey") String conversationKey);
+
+    // Forward-only cursor for export; callers must consume it inside a transaction and close it
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select m from Message m join fetch m.sender left join fetch m.receiver " +
+           "where m.conversationKey = :conversationKey order by m.seq asc")
+    Stream<Message> streamConversation(@Param("conversationKey") String conversationKey);
 }
@@ -0,0 +1,253 @@
+package com.example.socialmessaging.service;
+
+import com.example.socialmessaging.model.Attachment;
+import com.example.socialmessaging.repository.AttachmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Local content-addressed attachment store. Uploads are streamed to a temp file
+ * while being hashed, then moved to {dir}/ab/cd/{sha256}; identical uploads share
+ * one file. Image thumbnails are rendered on a small background pool.
+ * The declared content type is only kept if it is on a short allow-list; anything
+ * else is recorded as application/octet-stream.
+ */
+@Service
+@Lazy
+public class AttachmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentService.class);
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int THUMBNAIL_SIZE = 256;
+    private static final String OCTET_STREAM = "application/octet-stream";
+
+    // Raster images are the only types ever rendered inline (see isInlineSafe); no SVG, no HTML
+    private static final Set<String> INLINE_TYPES = Set.of("image/png", "image/jpeg", "image/gif", "image/webp");
+    private static final Set<String> ALLOWED_TYPES = Set.of("image/png", "image/jpeg", "image/gif", "image/webp",
+            "application/pdf", "text/plain", "audio/mpeg", "audio/ogg", "video/mp4", "video/webm",
+            "application/zip", OCTET_STREAM);
+
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+
+    @Value("${chat.attachments.dir:./data/attachments}")
+    private Path root;
+
+    @Value("${chat.attachments.max-bytes:26214400}")
+    private long maxBytes;
+
+    // Images are decoded for thumbnails only below this many source pixels
+    @Value("${chat.attachments.thumbnail-max-pixels:50000000}")
+    private long thumbnailMaxPixels;
+
+    private ThreadPoolExecutor thumbnailExecutor;
+
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(root.resolve("tmp"));
+        // Thumbnails are best effort: when the queue is full the upload still succeeds without one
+        thumbnailExecutor = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(100),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> log.warn("Thumbnail queue full, skipping thumbnail"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        thumbnailExecutor.shutdown();
+    }
+
+    public Attachment store(InputStream in, String contentType, String originalName) throws IOException {
+        Path temp = Files.createTempFile(root.resolve("tmp"), "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new RuntimeException("Attachment exceeds " + maxBytes + " bytes");
+                    }
+                    digest.update(buffer, 0, read);
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        out.write(chunk);
+                    }
+                }
+            }
+            if (size == 0) {
+                throw new RuntimeException("Attachment is empty");
+            }
+
+            String id = HexFormat.of().formatHex(digest.digest());
+            Path target = contentPath(id);
+            if (Files.exists(target)) {
+                Files.delete(temp);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            Attachment attachment = attachmentRepository.findById(id).orElse(null);
+            if (attachment == null) {
+                attachment = attachmentRepository.save(new Attachment(id, normalizeType(contentType), size, originalName));
+            }
+            if (!attachment.isThumbnailReady() && isInlineSafe(attachment.getContentType())) {
+                thumbnailExecutor.execute(() -> generateThumbnail(id));
+            }
+            return attachment;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Attachment find(String id) {
+        if (!isValidId(id)) {
+            throw new RuntimeException("Attachment not found");
+        }
+        return attachmentRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Attachment not found"));
+    }
+
+    public boolean exists(String id) {
+        return isValidId(id) && attachmentRepository.existsById(id);
+    }
+
+    // Only called with ids that passed isValidId, so the path cannot escape the store
+    public Path contentPath(String id) {
+        return root.resolve(id.substring(0, 2)).resolve(id.substring(2, 4)).resolve(id);
+    }
+
+    /** Whether content of this type may be served inline rather than as a download. */
+    public static boolean isInlineSafe(String contentType) {
+        return contentType != null && INLINE_TYPES.contains(contentType);
+    }
+
+    // "Image/PNG; charset=x" -> "image/png"; anything not on the allow-list -> octet-stream
+    private static String normalizeType(String contentType) {
+        if (contentType == null) {
+            return OCTET_STREAM;
+        }
+        int semicolon = contentType.indexOf(';');
+        String type = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim().toLowerCase(Locale.ROOT);
+        return ALLOWED_TYPES.contains(type) ? type : OCTET_STREAM;
+    }
+
+    public Path thumbnailPath(String id) {
+        return root.resolve(id.substring(0, 2)).resolve(id.substring(2, 4)).resolve(id + ".thumb.png");
+    }
+
+    private void generateThumbnail(String id) {
+        try {
+            BufferedImage image = readForThumbnail(contentPath(id));
+            if (image == null) {
+                return; // Not decodable, or too large to be worth decoding
+            }
+
+            double scale = Math.min(1.0, (double) THUMBNAIL_SIZE / Math.max(image.getWidth(), image.getHeight()));
+            int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+            BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = thumbnail.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+            graphics.dispose();
+
+            Path temp = Files.createTempFile(root.resolve("tmp"), "thumb-", ".png");
+            ImageIO.write(thumbnail, "png", temp.toFile());
+            Files.move(temp, thumbnailPath(id), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            attachmentRepository.findById(id).ifPresent(attachment -> {
+                attachment.setThumbnailReady(true);
+                attachmentRepository.save(attachment);
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("Thumbnail generation failed for {}: {}", id, e.getMessage());
+        }
+    }
+
+    // Reads the header first so a small file declaring huge dimensions (a decompression
+    // bomb) is refused before any pixels are allocated; large images are subsampled
+    // while decoding so only roughly twice the thumbnail size is ever held in memory.
+    private BufferedImage readForThumbnail(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > thumbnailMaxPixels) {
+                    log.warn("Skipping thumbnail for {}: {}x{} exceeds {} pixels",
+                            file.getFileName(), width, height, thumbnailMaxPixels);
+                    return null;
+                }
+                int step = Math.max(1, Math.max(width, height) / (THUMBNAIL_SIZE * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static boolean isValidId(String id) {
+        return id != null && ID_PATTERN.matcher(id).matches();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
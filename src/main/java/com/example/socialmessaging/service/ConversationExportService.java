@@ -0,0 +1,70 @@
+package com.example.socialmessaging.service;
+
+import com.example.socialmessaging.model.Message;
+import com.example.socialmessaging.repository.MessageRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+@Lazy
+public class ConversationExportService {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // The cursor only stays open inside the transaction, so the whole write happens here
+    @Transactional(readOnly = true)
+    public long exportPrivateChat(Long userId, Long friendId, OutputStream out) throws IOException {
+        String conversationKey = ConversationSequenceService.privateKey(userId, friendId);
+        try (Stream<Message> messages = messageRepository.streamConversation(conversationKey)) {
+            return writeNdjson(messages, out);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportGroupChat(Long groupId, OutputStream out) throws IOException {
+        String conversationKey = ConversationSequenceService.groupKey(groupId);
+        try (Stream<Message> messages = messageRepository.streamConversation(conversationKey)) {
+            return writeNdjson(messages, out);
+        }
+    }
+
+    private long writeNdjson(Stream<Message> messages, OutputStream out) throws IOException {
+        // Leave flushing to the response buffer instead of one network write per line
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        long count = 0;
+        Iterator<Message> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            Message message = iterator.next();
+            writer.writeValue(out, message);
+            out.write('\n');
+            // Keep the persistence context from growing with the conversation
+            entityManager.detach(message);
+            count++;
+        }
+        out.flush();
+        return count;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.socialmessaging.service;
+
+import com.example.socialmessaging.repository.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out dense, per-conversation sequence numbers at send time. Counters live
+ * in memory behind striped locks; a conversation's counter is seeded once from
+ * max(seq) on the (conversation_key, seq) index and dropped again when idle.
+ * Another instance can number the same conversation (e.g. both sides of a rolling
+ * deploy): the unique index then rejects the save, and the caller re-seeds and retries.
+ */
+@Service
+public class ConversationSequenceService {
+
+    // Name of the unique (conversation_key, seq) index, reported when a seq is already taken
+    public static final String SEQ_CONSTRAINT = "uq_messages_conversation_seq";
+
+    private static final int STRIPES = 64;
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    // conversation key -> {last issued seq, last used millis}; guarded by the key's stripe lock
+    private final Map<String, long[]> counters = new ConcurrentHashMap<>();
+
+    public ConversationSequenceService() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public static String privateKey(Long userId, Long friendId) {
+        return "p:" + Math.min(userId, friendId) + ":" + Math.max(userId, friendId);
+    }
+
+    public static String groupKey(Long groupId) {
+        return "g:" + groupId;
+    }
+
+    public long next(String conversationKey) {
+        synchronized (lockFor(conversationKey)) {
+            long[] counter = counters.get(conversationKey);
+            if (counter == null) {
+                Long max = messageRepository.findMaxSeq(conversationKey);
+                counter = new long[]{max != null ? max : 0L, 0L};
+                counters.put(conversationKey, counter);
+            }
+            counter[1] = System.currentTimeMillis();
+            return ++counter[0];
+        }
+    }
+
+    /** The seq was not stored; take it back if nothing was issued after it, so no gap is left. */
+    public void giveBack(String conversationKey, long seq) {
+        synchronized (lockFor(conversationKey)) {
+            long[] counter = counters.get(conversationKey);
+            if (counter != null && counter[0] == seq) {
+                counter[0]--;
+            }
+        }
+    }
+
+    /** Another writer has used this conversation's seqs: the next call re-seeds from max(seq). */
+    public void reseed(String conversationKey) {
+        synchronized (lockFor(conversationKey)) {
+            counters.remove(conversationKey);
+        }
+    }
+
+    // An idle counter can be re-seeded from the index later, so evicting it is safe
+    @Scheduled(fixedDelay = 5 * 60 * 1000)
+    public void evictIdleCounters() {
+        long cutoff = System.currentTimeMillis() - IDLE_MILLIS;
+        for (String key : counters.keySet()) {
+            synchronized (lockFor(key)) {
+                long[] counter = counters.get(key);
+                if (counter != null && counter[1] < cutoff) {
+                    counters.remove(key);
+                }
+            }
+        }
+    }
+
+    private Object lockFor(String conversationKey) {
+        return locks[Math.floorMod(conversationKey.hashCode(), STRIPES)];
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.socialmessaging.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt hashing and verification on a dedicated, bounded pool. A login storm
+ * queues here instead of pinning every Tomcat thread on CPU; once the queue is
+ * full callers get {@link CredentialsBusyException} straight away. Recent
+ * successful verifications are remembered briefly under an HMAC of the stored
+ * hash and the password, so a client re-logging in does not pay for BCrypt twice.
+ */
+@Service
+public class CredentialService {
+
+    private static final int MAX_CACHED_VERIFICATIONS = 10_000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.credentials.bcrypt-strength:10}")
+    private int strength;
+
+    @Value("${chat.credentials.threads:0}")
+    private int threads;
+
+    @Value("${chat.credentials.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${chat.credentials.timeout-ms:5000}")
+    private long timeoutMillis;
+
+    @Value("${chat.credentials.cache-ttl-seconds:60}")
+    private long cacheTtlSeconds;
+
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+
+    // HMAC(stored hash, password) -> expiry millis; the key is per process and never leaves memory
+    private final Map<String, Long> verified = new ConcurrentHashMap<>();
+    private SecretKeySpec cacheKey;
+
+    private Timer hashTimer;
+    private Timer verifyTimer;
+    private Timer queueWaitTimer;
+    private Counter rejected;
+    private Counter cacheHits;
+    private Counter cacheMisses;
+
+    @PostConstruct
+    void init() {
+        encoder = new BCryptPasswordEncoder(strength);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "credential-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        cacheKey = new SecretKeySpec(secret, "HmacSHA256");
+
+        hashTimer = Timer.builder("chat.credentials.hash.duration").tag("operation", "hash")
+                .description("Time spent in BCrypt").register(meterRegistry);
+        verifyTimer = Timer.builder("chat.credentials.hash.duration").tag("operation", "verify")
+                .description("Time spent in BCrypt").register(meterRegistry);
+        queueWaitTimer = Timer.builder("chat.credentials.queue.wait")
+                .description("Time a hashing task waited for a worker").register(meterRegistry);
+        rejected = Counter.builder("chat.credentials.rejected")
+                .description("Hashing requests refused because the pool was saturated").register(meterRegistry);
+        cacheHits = Counter.builder("chat.credentials.cache").tag("result", "hit").register(meterRegistry);
+        cacheMisses = Counter.builder("chat.credentials.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("chat.credentials.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("chat.credentials.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public String hash(String rawPassword) {
+        if (rawPassword == null || rawPassword.isEmpty()) {
+            throw new RuntimeException("Password is required");
+        }
+        return run(() -> hashTimer.recordCallable(() -> encoder.encode(rawPassword)));
+    }
+
+    public boolean verify(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null) {
+            return false;
+        }
+        if (!isHashed(storedPassword)) {
+            // Legacy plaintext row; the caller re-hashes it after a successful login
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String cacheEntry = cacheEntry(rawPassword, storedPassword);
+        Long expiresAt = verified.get(cacheEntry);
+        if (expiresAt != null && expiresAt > System.currentTimeMillis()) {
+            cacheHits.increment();
+            return true;
+        }
+        cacheMisses.increment();
+
+        boolean matches = run(() -> verifyTimer.recordCallable(() -> encoder.matches(rawPassword, storedPassword)));
+        if (matches) {
+            remember(cacheEntry);
+        }
+        return matches;
+    }
+
+    // Plaintext rows, and hashes made with a lower strength than configured
+    public boolean needsUpgrade(String storedPassword) {
+        return !isHashed(storedPassword) || encoder.upgradeEncoding(storedPassword);
+    }
+
+    private static boolean isHashed(String storedPassword) {
+        return storedPassword.startsWith("$2a$") || storedPassword.startsWith("$2b$")
+                || storedPassword.startsWith("$2y$");
+    }
+
+    private <T> T run(Callable<T> task) {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new CredentialsBusyException("Too many sign-in attempts right now, please retry");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new CredentialsBusyException("Too many sign-in attempts right now, please retry");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CredentialsBusyException("Interrupted while checking credentials");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Credential check failed", e.getCause());
+        }
+    }
+
+    private void remember(String cacheEntry) {
+        long now = System.currentTimeMillis();
+        if (verified.size() >= MAX_CACHED_VERIFICATIONS) {
+            verified.values().removeIf(expiresAt -> expiresAt <= now);
+            if (verified.size() >= MAX_CACHED_VERIFICATIONS) {
+                verified.clear();
+            }
+        }
+        verified.put(cacheEntry, now + TimeUnit.SECONDS.toMillis(cacheTtlSeconds));
+    }
+
+    private String cacheEntry(String rawPassword, String storedPassword) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(cacheKey);
+            mac.update(storedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
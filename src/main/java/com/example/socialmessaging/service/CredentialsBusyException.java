@@ -0,0 +1,9 @@
+package com.example.socialmessaging.service;
+
+// Thrown when the password hashing pool is saturated; mapped to 503 so clients retry later
+public class CredentialsBusyException extends RuntimeException {
+
+    public CredentialsBusyException(String message) {
+        super(message);
+    }
+}
@@ -8,8 +8,13 @@ import com.example.socialmessaging.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class FriendRequestService {
@@ -20,6 +25,12 @@ public class FriendRequestService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ResourceVersionService resourceVersions;
+
+    @Autowired
+    private FriendSuggestionService friendSuggestions;
+
     public FriendRequest sendRequest(Long senderId, Long receiverId) {
         User sender = userRepository.findById(senderId).orElseThrow(() -> new RuntimeException("Sender not found"));
         User receiver = userRepository.findById(receiverId).orElseThrow(() -> new RuntimeException("Receiver not found"));
@@ -42,6 +53,12 @@ public class FriendRequestService {
 
         request.setStatus(accept ? FriendRequestStatus.ACCEPTED : FriendRequestStatus.REJECTED);
         friendRequestRepository.save(request);
+
+        if (accept) {
+            friendSuggestions.addFriendship(request.getSender().getId(), request.getReceiver().getId());
+            resourceVersions.bump(ResourceVersionService.friendsKey(request.getSender().getId()));
+            resourceVersions.bump(ResourceVersionService.friendsKey(request.getReceiver().getId()));
+        }
     }
 
     public List<FriendRequest> getPendingRequests(Long userId) {
@@ -54,7 +71,7 @@ public class FriendRequestService {
         List<FriendRequest> received = friendRequestRepository.findByReceiverAndStatus(user, FriendRequestStatus.ACCEPTED);
         List<FriendRequest> sent = friendRequestRepository.findBySenderAndStatus(user, FriendRequestStatus.ACCEPTED);
         
-        List<User> friends = new java.util.ArrayList<>();
+        List<User> friends = new ArrayList<>();
         for (FriendRequest req : received) {
             friends.add(req.getSender());
         }
@@ -63,4 +80,27 @@ public class FriendRequestService {
         }
         return friends;
     }
+
+    // Ranking comes from the in-memory graph; only the suggested users are loaded
+    public List<Map<String, Object>> getSuggestions(Long userId, int limit) {
+        List<FriendSuggestionService.Suggestion> suggestions = friendSuggestions.suggest(userId, limit);
+        if (suggestions.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, User> users = userRepository.findAllById(
+                        suggestions.stream().map(FriendSuggestionService.Suggestion::userId).toList())
+                .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Map<String, Object>> result = new ArrayList<>(suggestions.size());
+        for (FriendSuggestionService.Suggestion suggestion : suggestions) {
+            User user = users.get(suggestion.userId());
+            if (user != null) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("user", user);
+                entry.put("mutualFriends", suggestion.mutualFriends());
+                result.add(entry);
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,285 @@
+package com.example.socialmessaging.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "People you may know": ranks friends-of-friends by number of mutual friends.
+ * The accepted friendships are held in memory as one sorted int array of
+ * neighbour indexes per user, loaded once at startup and kept current by
+ * FriendRequestService, so a query never touches the database.
+ */
+@Service
+public class FriendSuggestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(FriendSuggestionService.class);
+
+    private static final int[] NO_FRIENDS = new int[0];
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Dense index <-> user id; all guarded by lock
+    private final Map<Long, Integer> indexOf = new HashMap<>();
+    private long[] userIds = new long[1024];
+    private int[][] neighbours = new int[1024][];   // sorted, first degree[i] entries valid
+    private int[] degree = new int[1024];
+    private int size;
+
+    public record Suggestion(Long userId, int mutualFriends) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.query("SELECT sender_id, receiver_id FROM friend_requests WHERE status = 'ACCEPTED'",
+                    rs -> {
+                        append(index(rs.getLong(1)), index(rs.getLong(2)));
+                        append(index(rs.getLong(2)), index(rs.getLong(1)));
+                    });
+            int edges = 0;
+            for (int i = 0; i < size; i++) {
+                degree[i] = sortDistinct(neighbours[i], degree[i]);
+                edges += degree[i];
+            }
+            log.info("Friend graph loaded: {} users, {} friendships in {} ms",
+                    size, edges / 2, System.currentTimeMillis() - started);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addFriendship(Long userId, Long friendId) {
+        lock.writeLock().lock();
+        try {
+            int a = index(userId);
+            int b = index(friendId);
+            insertSorted(a, b);
+            insertSorted(b, a);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(Long userId) {
+        lock.writeLock().lock();
+        try {
+            Integer u = indexOf.get(userId);
+            if (u == null) {
+                return;
+            }
+            // The index slot stays allocated; it simply has no edges any more
+            for (int k = 0; k < degree[u]; k++) {
+                removeSorted(neighbours[u][k], u);
+            }
+            degree[u] = 0;
+            neighbours[u] = NO_FRIENDS;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Top {@code limit} non-friends of the user, most mutual friends first, ties by lower user id. */
+    public List<Suggestion> suggest(Long userId, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer u = indexOf.get(userId);
+            if (u == null || limit <= 0) {
+                return List.of();
+            }
+
+            int[] own = neighbours[u];
+            int ownDegree = degree[u];
+            int reachable = 0;
+            for (int k = 0; k < ownDegree; k++) {
+                reachable += degree[own[k]];
+            }
+            MutualCounts counts = new MutualCounts(Math.min(reachable, size));
+            for (int k = 0; k < ownDegree; k++) {
+                int friend = own[k];
+                int[] theirs = neighbours[friend];
+                for (int j = 0, n = degree[friend]; j < n; j++) {
+                    if (theirs[j] != u) {
+                        counts.increment(theirs[j]);
+                    }
+                }
+            }
+
+            // Bounded selection: keep the best `limit` candidates in a small sorted window
+            int[] best = new int[Math.min(limit, counts.size)];
+            int[] bestMutual = new int[best.length];
+            int bestCount = 0;
+            for (int slot = 0; slot < counts.keys.length; slot++) {
+                int candidate = counts.keys[slot];
+                int mutual = counts.values[slot];
+                if (candidate == MutualCounts.EMPTY || Arrays.binarySearch(own, 0, ownDegree, candidate) >= 0) {
+                    continue; // Free slot, or already a friend
+                }
+                if (bestCount < best.length) {
+                    bestCount++;
+                } else if (!ranksBefore(candidate, mutual, best[bestCount - 1], bestMutual[bestCount - 1])) {
+                    continue;
+                }
+                int p = bestCount - 1;
+                for (; p > 0 && ranksBefore(candidate, mutual, best[p - 1], bestMutual[p - 1]); p--) {
+                    best[p] = best[p - 1];
+                    bestMutual[p] = bestMutual[p - 1];
+                }
+                best[p] = candidate;
+                bestMutual[p] = mutual;
+            }
+
+            List<Suggestion> suggestions = new ArrayList<>(bestCount);
+            for (int p = 0; p < bestCount; p++) {
+                suggestions.add(new Suggestion(userIds[best[p]], bestMutual[p]));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean ranksBefore(int a, int mutualA, int b, int mutualB) {
+        return mutualA != mutualB ? mutualA > mutualB : userIds[a] < userIds[b];
+    }
+
+    // Open-addressing map from candidate index to mutual-friend count, sized by the
+    // friends-of-friends actually reached rather than by the whole graph
+    private static final class MutualCounts {
+
+        static final int EMPTY = -1;
+
+        int[] keys;
+        int[] values;
+        int size;
+
+        MutualCounts(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(8, expected) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        void increment(int key) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    values[slot]++;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = 1;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+        }
+
+        private static int slot(int key, int mask) {
+            int hash = key * 0x9E3779B9;
+            return (hash ^ hash >>> 16) & mask;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i], mask);
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    // ─── Graph maintenance (write lock held) ──────────────────────────────────
+    private int index(long userId) {
+        Integer existing = indexOf.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == userIds.length) {
+            int capacity = size * 2;
+            userIds = Arrays.copyOf(userIds, capacity);
+            neighbours = Arrays.copyOf(neighbours, capacity);
+            degree = Arrays.copyOf(degree, capacity);
+        }
+        userIds[size] = userId;
+        neighbours[size] = NO_FRIENDS;
+        indexOf.put(userId, size);
+        return size++;
+    }
+
+    private void append(int node, int neighbour) {
+        int[] list = ensureCapacity(node);
+        list[degree[node]++] = neighbour;
+    }
+
+    private void insertSorted(int node, int neighbour) {
+        int position = Arrays.binarySearch(neighbours[node], 0, degree[node], neighbour);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        int[] list = ensureCapacity(node);
+        System.arraycopy(list, position, list, position + 1, degree[node] - position);
+        list[position] = neighbour;
+        degree[node]++;
+    }
+
+    private void removeSorted(int node, int neighbour) {
+        int[] list = neighbours[node];
+        int position = Arrays.binarySearch(list, 0, degree[node], neighbour);
+        if (position >= 0) {
+            System.arraycopy(list, position + 1, list, position, degree[node] - position - 1);
+            degree[node]--;
+        }
+    }
+
+    private int[] ensureCapacity(int node) {
+        int[] list = neighbours[node];
+        if (degree[node] == list.length) {
+            list = Arrays.copyOf(list, Math.max(4, list.length * 2));
+            neighbours[node] = list;
+        }
+        return list;
+    }
+
+    private static int sortDistinct(int[] list, int length) {
+        Arrays.sort(list, 0, length);
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || list[distinct - 1] != list[i]) {
+                list[distinct++] = list[i];
+            }
+        }
+        return distinct;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.socialmessaging.service;
+
+import com.example.socialmessaging.model.Message;
+import com.example.socialmessaging.repository.MessageRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class GroupReceiptService {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupReceiptService.class);
+
+    // Only members get a watermark; the watermark never moves backwards. Positions are
+    // per-group seq numbers, last_read_message_id just records which message that was.
+    private static final String UPSERT_WATERMARK =
+            "INSERT INTO group_read_watermarks (group_id, user_id, last_read_seq, last_read_message_id, updated_at) " +
+            "SELECT ?, ?, ?, ?, now() WHERE EXISTS " +
+            "(SELECT 1 FROM group_members WHERE group_id = ? AND user_id = ?) " +
+            "ON CONFLICT (group_id, user_id) DO UPDATE SET " +
+            "last_read_message_id = CASE WHEN EXCLUDED.last_read_seq > group_read_watermarks.last_read_seq " +
+            "THEN EXCLUDED.last_read_message_id ELSE group_read_watermarks.last_read_message_id END, " +
+            "last_read_seq = GREATEST(group_read_watermarks.last_read_seq, EXCLUDED.last_read_seq), " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private static final String MEMBER_WATERMARKS =
+            "SELECT m.user_id, w.last_read_seq FROM group_members m " +
+            "LEFT JOIN group_read_watermarks w ON w.group_id = m.group_id AND w.user_id = m.user_id " +
+            "WHERE m.group_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    // Reads waiting to be written; repeated reads by the same member coalesce to the highest seq
+    private final Map<WatermarkKey, Watermark> pending = new ConcurrentHashMap<>();
+
+    public void markRead(Long groupId, Long userId, Long messageId) {
+        markRead(userId, groupMessage(groupId, messageId));
+    }
+
+    // For a message already loaded and known to belong to its group
+    public void markRead(Long userId, Message message) {
+        pending.merge(new WatermarkKey(message.getGroupId(), userId),
+                new Watermark(message.getSeq(), message.getId()),
+                (a, b) -> a.seq() >= b.seq() ? a : b);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.receipts.flush-interval-ms:2000}")
+    @PreDestroy
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>();
+        for (WatermarkKey key : pending.keySet()) {
+            Watermark watermark = pending.remove(key);
+            if (watermark != null) {
+                batch.add(new Object[]{key.groupId(), key.userId(), watermark.seq(), watermark.messageId(),
+                        key.groupId(), key.userId()});
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_WATERMARK, batch);
+        } catch (DataAccessException e) {
+            // Receipts are best effort; the next read from each member moves the watermark again
+            log.warn("Failed to flush {} group read watermarks: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getReadReceipt(Long groupId, Long messageId) {
+        Message message = groupMessage(groupId, messageId);
+        Long senderId = message.getSender().getId();
+
+        Map<Long, Long> watermarks = new HashMap<>();
+        jdbcTemplate.query(MEMBER_WATERMARKS, rs -> {
+            long lastRead = rs.getLong(2);
+            watermarks.put(rs.getLong(1), rs.wasNull() ? 0L : lastRead);
+        }, groupId);
+
+        int members = 0;
+        int readBy = 0;
+        for (Map.Entry<Long, Long> entry : watermarks.entrySet()) {
+            Long userId = entry.getKey();
+            if (userId.equals(senderId)) {
+                continue;
+            }
+            members++;
+            Watermark unflushed = pending.get(new WatermarkKey(groupId, userId));
+            long lastRead = Math.max(entry.getValue(), unflushed != null ? unflushed.seq() : 0L);
+            if (lastRead >= message.getSeq()) {
+                readBy++;
+            }
+        }
+
+        return Map.of(
+            "messageId", messageId,
+            "readBy", readBy,
+            "members", members
+        );
+    }
+
+    private Message groupMessage(Long groupId, Long messageId) {
+        Message message = messageRepository.findById(messageId)
+                .orElseThrow(() -> new RuntimeException("Message not found"));
+        if (!groupId.equals(message.getGroupId())) {
+            throw new RuntimeException("Message does not belong to this group");
+        }
+        return message;
+    }
+
+    private record WatermarkKey(Long groupId, Long userId) {
+    }
+
+    private record Watermark(long seq, long messageId) {
+    }
+}
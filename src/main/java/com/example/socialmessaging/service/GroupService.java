@@ -1,28 +1,104 @@
 package com.example.socialmessaging.service;
 
+import com.example.socialmessaging.config.WireFormatInterceptor;
 import com.example.socialmessaging.model.Group;
 import com.example.socialmessaging.model.User;
 import com.example.socialmessaging.repository.GroupRepository;
 import com.example.socialmessaging.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class GroupService {
 
+    private static final int MAX_BULK_MEMBERS = 1000;
+
+    // Only ids of existing users are inserted; rows already present are skipped
+    private static final String ADD_MEMBERS =
+            "INSERT INTO group_members (group_id, user_id) " +
+            "SELECT ?, u.id FROM users u WHERE u.id = ANY(?) " +
+            "ON CONFLICT DO NOTHING RETURNING user_id";
+
+    private static final String REMOVE_MEMBERS =
+            "DELETE FROM group_members WHERE group_id = ? AND user_id = ANY(?) RETURNING user_id";
+
     @Autowired
     private GroupRepository groupRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ResourceVersionService resourceVersions;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private WireFormatInterceptor wireFormatInterceptor;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     public Group createGroup(String name, Long createdById) {
+        return createGroup(name, createdById, List.of());
+    }
+
+    // Initial members are loaded in one query and their join rows go out as one JDBC batch
+    public Group createGroup(String name, Long createdById, Collection<Long> memberIds) {
         User creator = userRepository.findById(createdById)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         Group group = new Group(name, creator);
-        return groupRepository.save(group);
+        List<Long> ids = distinctIds(memberIds);
+        if (!ids.isEmpty()) {
+            group.getMembers().addAll(userRepository.findAllById(ids));
+        }
+        Group saved = groupRepository.save(group);
+        bumpMemberLists(saved);
+        return saved;
+    }
+
+    public List<Long> addMembers(Long groupId, Collection<Long> userIds) {
+        List<Long> ids = distinctIds(userIds);
+        if (!groupRepository.existsById(groupId)) {
+            throw new RuntimeException("Group not found");
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Long> added = jdbcTemplate.queryForList(ADD_MEMBERS, Long.class, groupId, ids.toArray(new Long[0]));
+        if (!added.isEmpty()) {
+            membershipChanged(groupId, added, List.of());
+        }
+        return added;
+    }
+
+    public List<Long> removeMembers(Long groupId, Collection<Long> userIds) {
+        List<Long> ids = distinctIds(userIds);
+        if (!groupRepository.existsById(groupId)) {
+            throw new RuntimeException("Group not found");
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Long> removed = jdbcTemplate.queryForList(REMOVE_MEMBERS, Long.class, groupId, ids.toArray(new Long[0]));
+        if (!removed.isEmpty()) {
+            membershipChanged(groupId, List.of(), removed);
+        }
+        return removed;
     }
 
     public Group addMember(Long groupId, Long userId) {
@@ -32,7 +108,9 @@ public class GroupService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         group.getMembers().add(user);
-        return groupRepository.save(group);
+        Group saved = groupRepository.save(group);
+        bumpMemberLists(saved);
+        return saved;
     }
 
     public List<Group> getUserGroups(Long userId) {
@@ -45,7 +123,9 @@ public class GroupService {
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new RuntimeException("Group not found"));
         group.setName(newName);
-        return groupRepository.save(group);
+        Group saved = groupRepository.save(group);
+        bumpMemberLists(saved);
+        return saved;
     }
 
     public void removeMember(Long groupId, Long userId) {
@@ -56,11 +136,62 @@ public class GroupService {
         
         group.getMembers().remove(user);
         groupRepository.save(group);
+        bumpMemberLists(group);
+        resourceVersions.bump(ResourceVersionService.groupsKey(userId));
     }
 
     public void deleteGroup(Long groupId) {
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new RuntimeException("Group not found"));
         groupRepository.delete(group);
+        bumpMemberLists(group);
+    }
+
+    // Group lists embed the member set, so every member's list changes
+    private void bumpMemberLists(Group group) {
+        for (User member : group.getMembers()) {
+            resourceVersions.bump(ResourceVersionService.groupsKey(member.getId()));
+        }
+    }
+
+    // One event per bulk call instead of one per user; the statement has already committed
+    private void membershipChanged(Long groupId, List<Long> added, List<Long> removed) {
+        // The SQL above bypassed Hibernate, so the cached member set is stale
+        entityManagerFactory.getCache().unwrap(Cache.class)
+                .evictCollectionData(Group.class.getName() + ".members", groupId);
+
+        List<Long> memberIds = jdbcTemplate.queryForList(
+                "SELECT user_id FROM group_members WHERE group_id = ?", Long.class, groupId);
+        for (Long memberId : memberIds) {
+            resourceVersions.bump(ResourceVersionService.groupsKey(memberId));
+        }
+        for (Long userId : removed) {
+            resourceVersions.bump(ResourceVersionService.groupsKey(userId));
+        }
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", "MEMBERSHIP");
+        event.put("groupId", groupId);
+        event.put("added", added);
+        event.put("removed", removed);
+        event.put("memberCount", memberIds.size());
+
+        String destination = "/topic/group/" + groupId;
+        messagingTemplate.convertAndSend(destination, event);
+        if (wireFormatInterceptor.hasTopicSubscribers(destination)) {
+            messagingTemplate.convertAndSend(destination + WireFormatInterceptor.CBOR_SUFFIX,
+                    event, WireFormatInterceptor.cborHeaders());
+        }
+    }
+
+    private static List<Long> distinctIds(Collection<Long> userIds) {
+        if (userIds == null) {
+            return List.of();
+        }
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.size() > MAX_BULK_MEMBERS) {
+            throw new RuntimeException("At most " + MAX_BULK_MEMBERS + " users per request");
+        }
+        return ids;
     }
 }
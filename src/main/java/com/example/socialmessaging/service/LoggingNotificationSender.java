@@ -0,0 +1,48 @@
+package com.example.socialmessaging.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Local stand-in for a real notification provider: logs each digest and,
+// if chat.notifications.file is set, appends it to that file.
+@Component
+@Lazy
+public class LoggingNotificationSender implements NotificationSender {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingNotificationSender.class);
+
+    @Value("${chat.notifications.file:}")
+    private String file;
+
+    @Override
+    public void send(List<NotificationDigest> digests) {
+        List<String> lines = new ArrayList<>(digests.size());
+        for (NotificationDigest digest : digests) {
+            String line = "To " + digest.getRecipientUsername() + ": " + digest.getMessageCount()
+                    + " new message(s), latest from " + digest.getLastSenderName()
+                    + ": \"" + digest.getLastPreview() + "\"";
+            log.info("Offline digest {}", line);
+            lines.add(line);
+        }
+
+        if (!file.isEmpty()) {
+            try {
+                Files.write(Path.of(file), lines, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                log.warn("Could not append digests to {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.socialmessaging.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers recent (sender, clientMessageId) pairs so a retried send can be
+ * answered with the message already stored. The window is bounded in size and
+ * age; anything older falls through to the unique index on messages.
+ */
+@Service
+public class MessageDedupeService {
+
+    // Returned by claim() when the first copy of a send is still being saved after the wait
+    public static final long IN_FLIGHT = -1L;
+
+    private final Map<String, long[]> window;   // key -> {message id or IN_FLIGHT, created millis}
+
+    @Value("${chat.dedupe.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    @Value("${chat.dedupe.in-flight-wait-ms:5000}")
+    private long inFlightWaitMillis;
+
+    public MessageDedupeService(@Value("${chat.dedupe.max-entries:50000}") int maxEntries) {
+        this.window = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns null if the caller now owns this send and must complete() or release() it,
+     * otherwise the id of the stored message. A retry that arrives while the first copy
+     * is being saved waits for that save: if it is released (failed) the retry takes over,
+     * and only if it is still running after the wait is {@link #IN_FLIGHT} returned.
+     */
+    public synchronized Long claim(Long senderId, String clientMessageId) {
+        String key = key(senderId, clientMessageId);
+        long deadline = System.currentTimeMillis() + inFlightWaitMillis;
+        while (true) {
+            long now = System.currentTimeMillis();
+            long[] entry = window.get(key);
+            if (entry == null || now - entry[1] >= ttlSeconds * 1000) {
+                window.remove(key);
+                window.put(key, new long[]{IN_FLIGHT, now});
+                return null;
+            }
+            if (entry[0] != IN_FLIGHT || now >= deadline) {
+                return entry[0];
+            }
+            try {
+                wait(deadline - now);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return IN_FLIGHT;
+            }
+        }
+    }
+
+    public synchronized void complete(Long senderId, String clientMessageId, Long messageId) {
+        window.put(key(senderId, clientMessageId), new long[]{messageId, System.currentTimeMillis()});
+        notifyAll();
+    }
+
+    public synchronized void release(Long senderId, String clientMessageId) {
+        window.remove(key(senderId, clientMessageId));
+        notifyAll();
+    }
+
+    private static String key(Long senderId, String clientMessageId) {
+        return senderId + ":" + clientMessageId;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.socialmessaging.service;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+// Everything that arrived for one offline recipient since their last digest
+@Value
+public class NotificationDigest {
+    Long recipientId;
+    String recipientUsername;
+    int messageCount;
+    String lastSenderName;
+    String lastPreview;
+    LocalDateTime firstAt;
+    LocalDateTime lastAt;
+}
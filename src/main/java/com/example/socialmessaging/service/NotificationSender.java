@@ -0,0 +1,13 @@
+package com.example.socialmessaging.service;
+
+import java.util.List;
+
+/**
+ * Delivery channel for offline digests (email, push, ...). The default is
+ * {@link LoggingNotificationSender}; declare another implementation as
+ * {@code @Primary} to replace it.
+ */
+public interface NotificationSender {
+
+    void send(List<NotificationDigest> digests);
+}
@@ -0,0 +1,108 @@
+package com.example.socialmessaging.service;
+
+import com.example.socialmessaging.model.Message;
+import com.example.socialmessaging.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class OfflineNotificationService {
+
+    private static final Logger log = LoggerFactory.getLogger(OfflineNotificationService.class);
+
+    private static final int PREVIEW_LENGTH = 100;
+
+    private static final String ENQUEUE =
+            "INSERT INTO offline_notifications " +
+            "(recipient_id, recipient_username, message_count, last_sender_name, last_preview, first_at, last_at) " +
+            "VALUES (?, ?, 1, ?, ?, now(), now()) " +
+            "ON CONFLICT (recipient_id) DO UPDATE SET " +
+            "message_count = offline_notifications.message_count + 1, " +
+            "last_sender_name = EXCLUDED.last_sender_name, " +
+            "last_preview = EXCLUDED.last_preview, " +
+            "last_at = EXCLUDED.last_at";
+
+    // Claims a batch by deleting it, so concurrent instances never send the same digest twice
+    private static final String CLAIM_BATCH =
+            "DELETE FROM offline_notifications WHERE recipient_id IN (" +
+            "SELECT recipient_id FROM offline_notifications " +
+            "WHERE first_at <= now() - make_interval(secs => ?) " +
+            "ORDER BY first_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING recipient_id, recipient_username, message_count, last_sender_name, " +
+            "last_preview, first_at, last_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SimpUserRegistry simpUserRegistry;
+
+    // Only needed once the first digest batch is due
+    @Autowired
+    @Lazy
+    private NotificationSender notificationSender;
+
+    // Messages arriving within this window after the first one end up in the same digest
+    @Value("${chat.notifications.digest-delay-seconds:300}")
+    private int digestDelaySeconds;
+
+    @Value("${chat.notifications.batch-size:200}")
+    private int batchSize;
+
+    public void notifyIfOffline(User recipient, User sender, Message message) {
+        if (simpUserRegistry.getUser(recipient.getUsername()) != null) {
+            return;
+        }
+
+        String content = message.getContent();
+        String preview = content.length() > PREVIEW_LENGTH ? content.substring(0, PREVIEW_LENGTH) + "…" : content;
+        try {
+            jdbcTemplate.update(ENQUEUE, recipient.getId(), recipient.getUsername(), sender.getUsername(), preview);
+        } catch (DataAccessException e) {
+            log.warn("Could not queue offline notification for {}: {}", recipient.getUsername(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.notifications.flush-interval-ms:60000}")
+    public void deliverDigests() {
+        List<NotificationDigest> claimed;
+        do {
+            claimed = jdbcTemplate.query(CLAIM_BATCH, (rs, rowNum) -> new NotificationDigest(
+                    rs.getLong("recipient_id"),
+                    rs.getString("recipient_username"),
+                    rs.getInt("message_count"),
+                    rs.getString("last_sender_name"),
+                    rs.getString("last_preview"),
+                    rs.getTimestamp("first_at").toLocalDateTime(),
+                    rs.getTimestamp("last_at").toLocalDateTime()
+            ), digestDelaySeconds, batchSize);
+
+            // Recipients who have connected since will see the messages in the app
+            List<NotificationDigest> stillOffline = new ArrayList<>(claimed.size());
+            for (NotificationDigest digest : claimed) {
+                if (simpUserRegistry.getUser(digest.getRecipientUsername()) == null) {
+                    stillOffline.add(digest);
+                }
+            }
+
+            if (!stillOffline.isEmpty()) {
+                try {
+                    notificationSender.send(stillOffline);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to deliver {} offline digests: {}", stillOffline.size(), e.getMessage());
+                }
+            }
+        } while (claimed.size() == batchSize);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.socialmessaging.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version counters backing the ETags of the list/history endpoints.
+ * Every write that changes one of those responses bumps the matching counter,
+ * so a conditional GET can be answered with 304 before touching the database.
+ */
+@Service
+public class ResourceVersionService {
+
+    // Usernames are embedded in every list, so profile changes invalidate everything
+    private static final String USERS_KEY = "users";
+
+    // isOnline/lastSeen of embedded users change without a write we can see here
+    private static final long PRESENCE_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    // Distinguishes counters of this process from those of a previous run
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public static String privateChatKey(Long userId, Long friendId) {
+        return "chat:" + Math.min(userId, friendId) + ":" + Math.max(userId, friendId);
+    }
+
+    public static String groupChatKey(Long groupId) {
+        return "group:" + groupId;
+    }
+
+    public static String friendsKey(Long userId) {
+        return "friends:" + userId;
+    }
+
+    public static String groupsKey(Long userId) {
+        return "groups:" + userId;
+    }
+
+    public void bump(String key) {
+        versions.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public void bumpUsers() {
+        bump(USERS_KEY);
+    }
+
+    // Weak: the tag identifies the representation, not its bytes, and Tomcat refuses to
+    // gzip a response that carries a strong ETag
+    public String etag(String key) {
+        long presenceBucket = System.currentTimeMillis() / PRESENCE_BUCKET_MILLIS;
+        return "W/\"" + epoch + "-" + version(key) + "-" + version(USERS_KEY) + "-" + presenceBucket + "\"";
+    }
+
+    private long version(String key) {
+        AtomicLong version = versions.get(key);
+        return version != null ? version.get() : 0;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.socialmessaging.service;
+
+import com.example.socialmessaging.model.User;
+import com.example.socialmessaging.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves usernames on the send path. Only username -> id is remembered here; the
+ * User itself comes from the second-level cache by id, so the lastSeen/isOnline writes
+ * that keep invalidating query-cache results do not touch this map. Every hit is checked
+ * against the loaded user's current name, so renames and deletions fall through to the query.
+ */
+@Service
+public class UserLookupService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Map<String, Long> idsByUsername;
+
+    public UserLookupService(@Value("${chat.users.lookup-max-entries:10000}") int maxEntries) {
+        this.idsByUsername = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public Optional<User> findByUsername(String username) {
+        Long id;
+        synchronized (idsByUsername) {
+            id = idsByUsername.get(username);
+        }
+        if (id != null) {
+            Optional<User> user = userRepository.findById(id);
+            if (user.isPresent() && username.equals(user.get().getUsername())) {
+                return user;
+            }
+        }
+
+        Optional<User> user = userRepository.findByUsername(username);
+        synchronized (idsByUsername) {
+            if (user.isPresent()) {
+                idsByUsername.put(username, user.get().getId());
+            } else {
+                idsByUsername.remove(username);
+            }
+        }
+        return user;
+    }
+}
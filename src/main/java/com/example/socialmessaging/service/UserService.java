@@ -16,18 +16,32 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ResourceVersionService resourceVersions;
+
+    @Autowired
+    private FriendSuggestionService friendSuggestions;
+
+    @Autowired
+    private CredentialService credentials;
+
     public User registerUser(String username, String password) {
         if (userRepository.findByUsername(username).isPresent()) {
             throw new RuntimeException("Username already exists");
         }
-        User user = new User(username, password);
+        User user = new User(username, credentials.hash(password));
         return userRepository.save(user);
     }
 
     public User loginUser(String username, String password) {
         User user = userRepository.findByUsername(username)
-                .filter(u -> u.getPassword().equals(password))
+                .filter(u -> credentials.verify(password, u.getPassword()))
                 .orElseThrow(() -> new RuntimeException("Invalid username or password"));
+
+        // Plaintext (pre-hashing) and weaker hashes are replaced now that we know the password
+        if (credentials.needsUpgrade(user.getPassword())) {
+            user.setPassword(credentials.hash(password));
+        }
         
         // Update last seen timestamp (UTC)
         user.setLastSeen(LocalDateTime.now(ZoneOffset.UTC));
@@ -58,16 +72,20 @@ public class UserService {
         }
         
         if (newPassword != null && !newPassword.isEmpty()) {
-            user.setPassword(newPassword);
+            user.setPassword(credentials.hash(newPassword));
         }
         
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        resourceVersions.bumpUsers();
+        return saved;
     }
 
     public void deleteUser(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         userRepository.delete(user);
+        friendSuggestions.removeUser(userId);
+        resourceVersions.bumpUsers();
     }
 
     public void updateLastSeen(Long userId) {
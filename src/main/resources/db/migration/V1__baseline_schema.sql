@@ -0,0 +1,60 @@
+-- Baseline schema matching the JPA entities.
+-- Written with IF NOT EXISTS so it also applies cleanly to databases that were
+-- previously created by spring.jpa.hibernate.ddl-auto=update.
+
+CREATE TABLE IF NOT EXISTS users (
+    id          BIGINT       PRIMARY KEY,
+    username    VARCHAR(255) NOT NULL UNIQUE,
+    password    VARCHAR(255) NOT NULL,
+    created_at  TIMESTAMP(6),
+    last_seen   TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS chat_groups (
+    id          BIGINT       PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    created_by  BIGINT       NOT NULL REFERENCES users (id),
+    created_at  TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS group_members (
+    group_id    BIGINT NOT NULL REFERENCES chat_groups (id),
+    user_id     BIGINT NOT NULL REFERENCES users (id),
+    PRIMARY KEY (group_id, user_id)
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    id                 BIGINT       PRIMARY KEY,
+    sender_id          BIGINT       NOT NULL REFERENCES users (id),
+    receiver_id        BIGINT       REFERENCES users (id),
+    group_id           BIGINT,
+    content            VARCHAR(255) NOT NULL,
+    timestamp          TIMESTAMP(6),
+    delivered_at       TIMESTAMP(6),
+    read_at            TIMESTAMP(6),
+    reply_to_id        BIGINT,
+    reply_preview      VARCHAR(255),
+    reply_sender_name  VARCHAR(255),
+    edited             BOOLEAN      NOT NULL DEFAULT FALSE,
+    edited_at          TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS friend_requests (
+    id           BIGINT       PRIMARY KEY,
+    sender_id    BIGINT       NOT NULL REFERENCES users (id),
+    receiver_id  BIGINT       NOT NULL REFERENCES users (id),
+    status       VARCHAR(255) CHECK (status IN ('PENDING', 'ACCEPTED', 'REJECTED')),
+    created_at   TIMESTAMP(6)
+);
+
+-- Sequences backing the pooled-lo id generators (allocationSize = 50).
+CREATE SEQUENCE IF NOT EXISTS users_seq           START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS chat_groups_seq     START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS messages_seq        START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS friend_requests_seq START WITH 1 INCREMENT BY 50;
+
+-- Move the sequences past rows inserted under the old IDENTITY columns.
+SELECT setval('users_seq',           (SELECT COALESCE(MAX(id), 0) + 1 FROM users),           false);
+SELECT setval('chat_groups_seq',     (SELECT COALESCE(MAX(id), 0) + 1 FROM chat_groups),     false);
+SELECT setval('messages_seq',        (SELECT COALESCE(MAX(id), 0) + 1 FROM messages),        false);
+SELECT setval('friend_requests_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM friend_requests), false);
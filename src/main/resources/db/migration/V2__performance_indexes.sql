@@ -0,0 +1,28 @@
+-- Indexes for the repository queries. CONCURRENTLY avoids locking the tables
+-- against writes while the index builds, so this script runs outside a
+-- transaction (see V2__performance_indexes.sql.conf).
+
+-- findBySenderAndReceiverOrReceiverAndSenderOrderByTimestampAsc (both OR branches),
+-- findBySenderAndReceiverOrderByTimestampAsc
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_messages_sender_receiver_ts
+    ON messages (sender_id, receiver_id, timestamp);
+
+-- findByGroupIdOrderByTimestampAsc
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_messages_group_ts
+    ON messages (group_id, timestamp)
+    WHERE group_id IS NOT NULL;
+
+-- findByReceiverAndStatus / findBySenderAndStatus
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_friend_requests_receiver_status
+    ON friend_requests (receiver_id, status);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_friend_requests_sender_status
+    ON friend_requests (sender_id, status);
+
+-- findBySenderAndReceiver
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_friend_requests_sender_receiver
+    ON friend_requests (sender_id, receiver_id);
+
+-- findByMembersContaining (the primary key only covers group_id lookups)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_group_members_user
+    ON group_members (user_id);
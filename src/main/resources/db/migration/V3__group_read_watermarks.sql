@@ -0,0 +1,12 @@
+-- One read watermark per (group, member): the highest per-conversation seq the member
+-- has read, plus the id of that message. Seqs rather than ids are compared, because ids
+-- come from pooled-lo blocks handed out per instance and are not ordered across instances.
+-- "Read by N of M" is answered from these rows instead of per-message receipts.
+CREATE TABLE IF NOT EXISTS group_read_watermarks (
+    group_id              BIGINT       NOT NULL REFERENCES chat_groups (id) ON DELETE CASCADE,
+    user_id               BIGINT       NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    last_read_seq         BIGINT       NOT NULL DEFAULT 0,
+    last_read_message_id  BIGINT       NOT NULL,
+    updated_at            TIMESTAMP(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (group_id, user_id)
+);
@@ -0,0 +1,20 @@
+-- Dense per-conversation sequence numbers. conversation_key is
+-- 'p:<smaller user id>:<larger user id>' for private chats and 'g:<group id>' for groups.
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS conversation_key VARCHAR(64);
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+UPDATE messages
+SET conversation_key = CASE
+        WHEN group_id IS NOT NULL THEN 'g:' || group_id
+        ELSE 'p:' || LEAST(sender_id, receiver_id) || ':' || GREATEST(sender_id, receiver_id)
+    END
+WHERE conversation_key IS NULL;
+
+-- Number existing history in its previous display order
+UPDATE messages m
+SET seq = numbered.rn
+FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY conversation_key ORDER BY timestamp, id) AS rn
+    FROM messages
+) numbered
+WHERE m.id = numbered.id AND m.seq IS NULL;
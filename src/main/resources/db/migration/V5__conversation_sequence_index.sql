@@ -0,0 +1,7 @@
+-- History, range and max(seq) lookups all go through (conversation_key, seq).
+-- Runs outside a transaction (see V5__conversation_sequence_index.sql.conf).
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_messages_conversation_seq
+    ON messages (conversation_key, seq);
+
+-- Group history no longer orders by timestamp
+DROP INDEX CONCURRENTLY IF EXISTS idx_messages_group_ts;
@@ -0,0 +1,15 @@
+-- Pending notifications for recipients without an active WebSocket session.
+-- One row per recipient: further messages only bump the count, so the queue is
+-- bounded by the number of users rather than the number of messages.
+CREATE TABLE IF NOT EXISTS offline_notifications (
+    recipient_id        BIGINT       PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    recipient_username  VARCHAR(255) NOT NULL,
+    message_count       INTEGER      NOT NULL,
+    last_sender_name    VARCHAR(255),
+    last_preview        VARCHAR(255),
+    first_at            TIMESTAMP(6) NOT NULL,
+    last_at             TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_offline_notifications_first_at
+    ON offline_notifications (first_at);
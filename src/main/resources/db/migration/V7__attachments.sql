@@ -0,0 +1,11 @@
+-- Content-addressed attachments: id is the hex SHA-256 of the bytes, which live on disk
+CREATE TABLE IF NOT EXISTS attachments (
+    id               VARCHAR(64)  PRIMARY KEY,
+    content_type     VARCHAR(255) NOT NULL,
+    size_bytes       BIGINT       NOT NULL,
+    original_name    VARCHAR(255),
+    thumbnail_ready  BOOLEAN      NOT NULL DEFAULT FALSE,
+    created_at       TIMESTAMP(6)
+);
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS attachment_id VARCHAR(64) REFERENCES attachments (id);
@@ -0,0 +1,2 @@
+-- Optional id chosen by the sending client so retried sends can be recognised
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS client_message_id VARCHAR(64);
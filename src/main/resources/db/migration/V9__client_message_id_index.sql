@@ -0,0 +1,6 @@
+-- Backstop for the in-memory dedupe window: a retry that reaches another instance,
+-- or arrives after a restart, fails this index instead of inserting a second row.
+-- Runs outside a transaction (see V9__client_message_id_index.sql.conf).
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uq_messages_sender_client_id
+    ON messages (sender_id, client_message_id)
+    WHERE client_message_id IS NOT NULL;
@@ -0,0 +1,77 @@
+package com.example.socialmessaging.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Principal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DatabaseConcurrencyLimiterTest {
+
+    private final DatabaseConcurrencyLimiter limiter = new DatabaseConcurrencyLimiter();
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final SimpAnnotationMethodMessageHandler handler = mock(SimpAnnotationMethodMessageHandler.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<SimpMessagingTemplate> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(messagingTemplate);
+        ReflectionTestUtils.setField(limiter, "messagingTemplate", provider);
+        ReflectionTestUtils.setField(limiter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limiter, "permits", 1);
+        ReflectionTestUtils.setField(limiter, "acquireTimeoutMillis", 0L);
+        ReflectionTestUtils.setField(limiter, "retryAfterMillis", 1000L);
+        limiter.init();
+    }
+
+    @Test
+    void sendWithoutPermitIsAnsweredWithBusy() {
+        Message<?> first = send("/app/group.send");
+        assertThat(limiter.beforeHandle(first, null, handler)).isSameAs(first);
+
+        assertThat(limiter.beforeHandle(send("/app/group.send"), null, handler)).isNull();
+        verify(messagingTemplate).convertAndSendToUser("alice", "/queue/errors", Map.of(
+                "type", "BUSY",
+                "destination", "/app/group.send",
+                "retryAfterMs", 1000L));
+
+        limiter.afterMessageHandled(first, null, handler, null);
+        Message<?> retried = send("/app/group.send");
+        assertThat(limiter.beforeHandle(retried, null, handler)).isSameAs(retried);
+    }
+
+    @Test
+    void nonDatabaseSendsNeverWait() {
+        limiter.beforeHandle(send("/app/private.send"), null, handler);
+
+        Message<?> typing = send("/app/typing");
+        assertThat(limiter.beforeHandle(typing, null, handler)).isSameAs(typing);
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), eq("/queue/errors"), any(Object.class));
+    }
+
+    private static Message<?> send(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setUser((Principal) () -> "alice");
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
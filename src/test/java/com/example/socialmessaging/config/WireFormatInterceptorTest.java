@@ -0,0 +1,76 @@
+package com.example.socialmessaging.config;
+
+import com.example.socialmessaging.model.Message;
+import com.example.socialmessaging.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.security.Principal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WireFormatInterceptorTest {
+
+    private final WireFormatInterceptor interceptor = new WireFormatInterceptor();
+
+    @Test
+    void cborCopyIsSmallerThanJson() throws Exception {
+        User alice = new User("alice", "secret");
+        alice.setId(1L);
+        alice.setLastSeen(LocalDateTime.of(2024, 1, 1, 12, 0));
+        User bob = new User("bob", "secret");
+        bob.setId(2L);
+        Message message = new Message(alice, bob, "Are we still on for lunch tomorrow?");
+        message.setId(12345L);
+        message.setConversationKey("p:1:2");
+        message.setSeq(42L);
+        message.setClientMessageId("c0b1e5f2-8a9d-4c3e-9f70-1d2e3f4a5b6c");
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0, 5));
+
+        // Same builder configuration as WebSocketConfig's JSON and CBOR converters
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+
+        byte[] jsonBytes = json.writeValueAsBytes(message);
+        byte[] cborBytes = cbor.writeValueAsBytes(message);
+
+        assertThat(cborBytes.length).isLessThan(jsonBytes.length);
+        assertThat(cbor.readValue(cborBytes, Message.class).getContent()).isEqualTo(message.getContent());
+    }
+
+    @Test
+    void subscribersAreCountedUntilTheLastOneLeaves() {
+        send(StompCommand.SUBSCRIBE, "s1", "sub-1", "/topic/group/42.cbor");
+        send(StompCommand.SUBSCRIBE, "s2", "sub-1", "/topic/group/42.cbor");
+        assertThat(interceptor.hasTopicSubscribers("/topic/group/42")).isTrue();
+
+        send(StompCommand.UNSUBSCRIBE, "s1", "sub-1", null);
+        assertThat(interceptor.hasTopicSubscribers("/topic/group/42")).isTrue();
+
+        send(StompCommand.DISCONNECT, "s2", null, null);
+        assertThat(interceptor.hasTopicSubscribers("/topic/group/42")).isFalse();
+    }
+
+    @Test
+    void userDestinationsAreKeyedByUsername() {
+        send(StompCommand.SUBSCRIBE, "s1", "sub-1", "/user/queue/messages.cbor");
+
+        assertThat(interceptor.hasUserSubscribers("alice", "/queue/messages")).isTrue();
+        assertThat(interceptor.hasUserSubscribers("bob", "/queue/messages")).isFalse();
+    }
+
+    private void send(StompCommand command, String sessionId, String subscriptionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        accessor.setUser((Principal) () -> "alice");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), null);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.socialmessaging.controller;
+
+import com.example.socialmessaging.config.WireFormatInterceptor;
+import com.example.socialmessaging.model.Message;
+import com.example.socialmessaging.model.User;
+import com.example.socialmessaging.repository.MessageRepository;
+import com.example.socialmessaging.service.ConversationSequenceService;
+import com.example.socialmessaging.service.GroupReceiptService;
+import com.example.socialmessaging.service.ResourceVersionService;
+import com.example.socialmessaging.service.UserLookupService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageControllerTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private MessageRepository messageRepository;
+    @Mock
+    private UserLookupService userLookup;
+    @Mock
+    private WireFormatInterceptor wireFormatInterceptor;
+    @Mock
+    private GroupReceiptService groupReceiptService;
+    @Mock
+    private ResourceVersionService resourceVersions;
+
+    @InjectMocks
+    private MessageController controller;
+
+    private final ConversationSequenceService sequences = new ConversationSequenceService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sequences, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(controller, "conversationSequences", sequences);
+
+        User alice = new User("alice", "secret");
+        alice.setId(1L);
+        when(userLookup.findByUsername("alice")).thenReturn(Optional.of(alice));
+    }
+
+    // Another instance stored seq 5 and 6 after this one seeded its counter at 4
+    @Test
+    void groupSendRetriesWithFreshSeqWhenAnotherInstanceTookIt() {
+        when(messageRepository.findMaxSeq("g:7")).thenReturn(4L, 6L);
+        List<Long> attemptedSeqs = new ArrayList<>();
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            attemptedSeqs.add(message.getSeq());
+            if (message.getSeq() <= 6) {
+                throw seqConflict();
+            }
+            message.setId(100L);
+            return message;
+        });
+
+        controller.sendGroupMessage(Map.of("sender", "alice", "groupId", 7, "content", "hi"));
+
+        assertThat(attemptedSeqs).containsExactly(5L, 7L);
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/group/7"), sent.capture());
+        assertThat(((Message) sent.getValue()).getSeq()).isEqualTo(7);
+    }
+
+    // A save that fails for another reason leaves no gap behind
+    @Test
+    void failedSaveGivesItsSeqBack() {
+        when(messageRepository.findMaxSeq("g:7")).thenReturn(4L);
+        when(messageRepository.save(any(Message.class))).thenThrow(new IllegalStateException("connection reset"));
+
+        assertThrows(IllegalStateException.class, () ->
+                controller.sendGroupMessage(Map.of("sender", "alice", "groupId", 7, "content", "hi")));
+        assertThat(sequences.next("g:7")).isEqualTo(5);
+    }
+
+    private static DataIntegrityViolationException seqConflict() {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key value",
+                        new SQLException("duplicate key value violates unique constraint", "23505"),
+                        ConversationSequenceService.SEQ_CONSTRAINT));
+    }
+}
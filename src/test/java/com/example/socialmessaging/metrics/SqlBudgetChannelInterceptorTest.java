@@ -0,0 +1,52 @@
+package com.example.socialmessaging.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SqlBudgetChannelInterceptorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqlBudgetChannelInterceptor interceptor = new SqlBudgetChannelInterceptor();
+    private final SimpAnnotationMethodMessageHandler handler = mock(SimpAnnotationMethodMessageHandler.class);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(interceptor, "meterRegistry", meterRegistry);
+    }
+
+    @Test
+    void subscriptionsRecordNothing() {
+        handle(SimpMessageType.SUBSCRIBE, "/topic/group/42");
+        handle(SimpMessageType.SUBSCRIBE, "/topic/group/42.cbor");
+        handle(SimpMessageType.UNSUBSCRIBE, "/topic/typing/group/42");
+
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    @Test
+    void appSendsAreRecordedPerDestination() {
+        handle(SimpMessageType.MESSAGE, "/app/group.send");
+
+        assertThat(meterRegistry.find("chat.sql.statements").tag("endpoint", "/app/group.send").summary())
+                .isNotNull();
+    }
+
+    private void handle(SimpMessageType type, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setDestination(destination);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        interceptor.beforeHandle(message, null, handler);
+        interceptor.afterMessageHandled(message, null, handler, null);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.socialmessaging.metrics;
+
+import com.example.socialmessaging.config.WireFormatInterceptor;
+import com.example.socialmessaging.controller.MessageController;
+import com.example.socialmessaging.model.Message;
+import com.example.socialmessaging.repository.MessageRepository;
+import com.example.socialmessaging.repository.UserRepository;
+import com.example.socialmessaging.service.ConversationSequenceService;
+import com.example.socialmessaging.service.GroupReceiptService;
+import com.example.socialmessaging.service.MessageDedupeService;
+import com.example.socialmessaging.service.OfflineNotificationService;
+import com.example.socialmessaging.service.ResourceVersionService;
+import com.example.socialmessaging.service.UserLookupService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The history endpoint has @SqlBudget(1); each SqlStats.statementPrepared() below stands in
+// for one JDBC statement, as reported by SqlTimingSessionListener in the real application
+@WebMvcTest(controllers = MessageController.class, properties = "chat.sql-budget.enforce=true")
+@Import({ResourceVersionService.class, SqlBudgetFilterTest.Metrics.class})
+class SqlBudgetFilterTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private MessageRepository messageRepository;
+
+    @MockBean
+    private SimpMessagingTemplate messagingTemplate;
+    @MockBean
+    private UserRepository userRepository;
+    @MockBean
+    private WireFormatInterceptor wireFormatInterceptor;
+    @MockBean
+    private GroupReceiptService groupReceiptService;
+    @MockBean
+    private ConversationSequenceService conversationSequences;
+    @MockBean
+    private OfflineNotificationService offlineNotificationService;
+    @MockBean
+    private MessageDedupeService messageDedupe;
+    @MockBean
+    private UserLookupService userLookup;
+
+    @Test
+    void historyWithinBudgetIsServed() throws Exception {
+        when(messageRepository.findByConversationKeyOrderBySeqAsc(anyString())).thenAnswer(invocation -> {
+            SqlStats.statementPrepared();
+            return List.of(new Message());
+        });
+
+        mockMvc.perform(get("/messages/history").param("userId", "1").param("friendId", "2"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void historyOverBudgetFails() {
+        when(messageRepository.findByConversationKeyOrderBySeqAsc(anyString())).thenAnswer(invocation -> {
+            SqlStats.statementPrepared();
+            SqlStats.statementPrepared();
+            return List.of(new Message());
+        });
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+                mockMvc.perform(get("/messages/history").param("userId", "1").param("friendId", "2")));
+        assertThat(e.getMessage()).startsWith("SQL budget exceeded: MessageController.getMessageHistory");
+    }
+
+    @Test
+    void lazyLoadsDuringSerializationCount() {
+        // A lazy association initialised by Jackson, after the handler has returned
+        Message lazy = new Message() {
+            @Override
+            public String getContent() {
+                SqlStats.statementPrepared();
+                return "hello";
+            }
+        };
+        when(messageRepository.findByConversationKeyOrderBySeqAsc(anyString())).thenAnswer(invocation -> {
+            SqlStats.statementPrepared();
+            return List.of(lazy);
+        });
+
+        double exceededBefore = exceededCount();
+
+        assertThrows(IllegalStateException.class, () ->
+                mockMvc.perform(get("/messages/history").param("userId", "1").param("friendId", "2")));
+        assertThat(exceededCount()).isEqualTo(exceededBefore + 1);
+    }
+
+    private double exceededCount() {
+        return meterRegistry.counter("chat.sql.budget.exceeded", "handler", "MessageController.getMessageHistory").count();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.socialmessaging.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatementCountingDataSourceTest {
+
+    @Test
+    void jdbcTemplateStatementsCount() throws Exception {
+        DataSource pool = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new StatementCountingDataSource(pool));
+        SqlStats.begin();
+        try {
+            jdbcTemplate.query("SELECT 1 WHERE ? = ?", rs -> { }, 1, 1);
+            jdbcTemplate.query("SELECT 2 WHERE ? = ?", rs -> { }, 1, 1);
+        } finally {
+            assertThat(SqlStats.end().getStatements()).isEqualTo(2);
+        }
+    }
+}
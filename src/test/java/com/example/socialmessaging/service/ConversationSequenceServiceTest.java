@@ -0,0 +1,57 @@
+package com.example.socialmessaging.service;
+
+import com.example.socialmessaging.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationSequenceServiceTest {
+
+    private static final String KEY = "g:7";
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConversationSequenceService sequences = new ConversationSequenceService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sequences, "messageRepository", messageRepository);
+    }
+
+    @Test
+    void seedsOnceFromMaxSeq() {
+        when(messageRepository.findMaxSeq(KEY)).thenReturn(41L);
+
+        assertThat(sequences.next(KEY)).isEqualTo(42);
+        assertThat(sequences.next(KEY)).isEqualTo(43);
+        verify(messageRepository, times(1)).findMaxSeq(KEY);
+    }
+
+    @Test
+    void reseedReadsMaxSeqAgain() {
+        when(messageRepository.findMaxSeq(KEY)).thenReturn(41L, 50L);
+
+        assertThat(sequences.next(KEY)).isEqualTo(42);
+        sequences.reseed(KEY);
+        assertThat(sequences.next(KEY)).isEqualTo(51);
+    }
+
+    @Test
+    void giveBackOnlyReturnsTheLatestSeq() {
+        when(messageRepository.findMaxSeq(KEY)).thenReturn(null);
+
+        long first = sequences.next(KEY);
+        long second = sequences.next(KEY);
+        sequences.giveBack(KEY, first);     // Already followed by another seq: stays used
+        assertThat(sequences.next(KEY)).isEqualTo(3);
+
+        sequences.giveBack(KEY, 3);
+        assertThat(sequences.next(KEY)).isEqualTo(3);
+        assertThat(second).isEqualTo(2);
+    }
+}
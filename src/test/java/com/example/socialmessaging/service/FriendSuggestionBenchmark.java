@@ -0,0 +1,73 @@
+package com.example.socialmessaging.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-K suggestion latency on a synthetic graph of a million friendships.
+ * Not part of the test run; after {@code mvn test-compile}, start {@link #main}
+ * from the test classpath (e.g. from the IDE).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendSuggestionBenchmark {
+
+    @Param("100000")
+    private int users;
+
+    @Param("1000000")
+    private int friendships;
+
+    private FriendSuggestionService service;
+    private long[] queries;
+    private int next;
+
+    @Setup
+    public void buildGraph() {
+        service = new FriendSuggestionService();
+        Random random = new Random(42);
+        for (int i = 0; i < friendships; i++) {
+            long a = 1 + random.nextInt(users);
+            long b = 1 + random.nextInt(users);
+            if (a != b) {
+                service.addFriendship(a, b);
+            }
+        }
+        queries = new long[1024];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = 1 + random.nextInt(users);
+        }
+    }
+
+    @Benchmark
+    public List<FriendSuggestionService.Suggestion> suggestTop10() {
+        long user = queries[next++ & (queries.length - 1)];
+        return service.suggest(user, 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FriendSuggestionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.socialmessaging.service;
+
+import com.example.socialmessaging.service.FriendSuggestionService.Suggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendSuggestionServiceTest {
+
+    private static final int USERS = 3000;
+    private static final int LIMIT = 10;
+
+    private final FriendSuggestionService service = new FriendSuggestionService();
+
+    // Plain adjacency sets, the obvious reference implementation
+    private final Map<Long, Set<Long>> friends = new HashMap<>();
+
+    @Test
+    void matchesBruteForceOnRandomGraph() {
+        Random random = new Random(7);
+        for (int i = 0; i < 40_000; i++) {
+            befriend(userId(random), userId(random));
+        }
+
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    void addFriendshipUpdatesSuggestions() {
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            befriend(userId(random), userId(random));
+        }
+        assertMatchesBruteForce();
+
+        for (int i = 0; i < 5_000; i++) {
+            befriend(userId(random), userId(random));
+        }
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    void removeUserDropsThemFromEverySuggestion() {
+        Random random = new Random(13);
+        for (int i = 0; i < 30_000; i++) {
+            befriend(userId(random), userId(random));
+        }
+
+        for (int i = 0; i < 300; i++) {
+            long removed = userId(random);
+            service.removeUser(removed);
+            Set<Long> theirs = friends.remove(removed);
+            if (theirs != null) {
+                theirs.forEach(friend -> friends.get(friend).remove(removed));
+            }
+        }
+
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    void friendsAndSelfAreNeverSuggested() {
+        befriend(1L, 2L);
+        befriend(2L, 3L);
+        befriend(1L, 3L);
+        befriend(3L, 4L);
+
+        assertThat(service.suggest(1L, LIMIT)).containsExactly(new Suggestion(4L, 1));
+        assertThat(service.suggest(99L, LIMIT)).isEmpty();
+        assertThat(service.suggest(1L, 0)).isEmpty();
+    }
+
+    private void befriend(long a, long b) {
+        if (a == b) {
+            return;
+        }
+        service.addFriendship(a, b);
+        friends.computeIfAbsent(a, id -> new HashSet<>()).add(b);
+        friends.computeIfAbsent(b, id -> new HashSet<>()).add(a);
+    }
+
+    private void assertMatchesBruteForce() {
+        for (long user = 1; user <= USERS; user += 7) {
+            assertThat(service.suggest(user, LIMIT))
+                    .as("suggestions for user %d", user)
+                    .isEqualTo(bruteForce(user));
+        }
+    }
+
+    private List<Suggestion> bruteForce(long user) {
+        Set<Long> own = friends.getOrDefault(user, Set.of());
+        Map<Long, Integer> mutual = new HashMap<>();
+        for (Long friend : own) {
+            for (Long candidate : friends.get(friend)) {
+                if (candidate != user && !own.contains(candidate)) {
+                    mutual.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        List<Suggestion> all = new ArrayList<>();
+        mutual.forEach((candidate, count) -> all.add(new Suggestion(candidate, count)));
+        all.sort(Comparator.comparingInt(Suggestion::mutualFriends).reversed()
+                .thenComparing(Suggestion::userId));
+        return all.subList(0, Math.min(LIMIT, all.size()));
+    }
+
+    private static long userId(Random random) {
+        return 1 + random.nextInt(USERS);
+    }
+}